@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.lox.Environment;
+import com.lox.Interpreter;
+import com.lox.InterpreterException;
+import com.lox.Parser;
+import com.lox.Scanner;
+import com.lox.ast.Stmt;
+
+// Run scripts with every engine in the same JVM and report the median running
+// time of each, along with its speedup over the tree walker, after some
+// warm-up runs so that the JVM has compiled the engine. Scripts are parsed
+// anew for every run, only running is timed.
+public class Benchmark {
+  private static final int WARMUP_RUNS = 3;
+
+  public static void main(String[] args) throws IOException, InterpreterException {
+    int runs = 5;
+    final List<String> scripts = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("--runs=")) {
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+      } else {
+        scripts.add(arg);
+      }
+    }
+    if (scripts.isEmpty()) {
+      System.out.println("Usage: Benchmark [--runs=N] script...");
+      System.exit(2);
+    }
+
+    final Interpreter.Engine[] engines = Interpreter.Engine.values();
+    System.out.print(String.format("%-16s", "script"));
+    for (Interpreter.Engine engine : engines) {
+      System.out.print(String.format("%26s", engine.name().toLowerCase()));
+    }
+    System.out.println();
+
+    for (String script : scripts) {
+      final String source = new String(Files.readAllBytes(Paths.get(script)), Charset.defaultCharset());
+      System.out.print(String.format("%-16s", Paths.get(script).getFileName()));
+      double treeWalker = 0;
+      for (Interpreter.Engine engine : engines) {
+        final double median = median(time(source, engine, runs));
+        if (engine == Interpreter.Engine.TREE_WALKER) {
+          treeWalker = median;
+        }
+        System.out.print(String.format("%14.1fms (%6.2fx)", median, treeWalker / median));
+      }
+      System.out.println();
+    }
+  }
+
+  private static double[] time(String source, Interpreter.Engine engine, int runs) throws InterpreterException {
+    final PrintStream stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      final double[] times = new double[runs];
+      for (int i = -WARMUP_RUNS; i < runs; ++i) {
+        final List<Stmt> stmts = new Parser(new Scanner(source)).parse().first;
+        final Interpreter interpreter = new Interpreter(engine);
+        final Environment env = Environment.createGlobals();
+        final long start = System.nanoTime();
+        interpreter.evaluate(stmts, env);
+        if (i >= 0) {
+          times[i] = (System.nanoTime() - start) / 1e6;
+        }
+      }
+      return times;
+    } finally {
+      System.setOut(stdout);
+    }
+  }
+
+  private static double median(double[] times) {
+    final double[] sorted = times.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
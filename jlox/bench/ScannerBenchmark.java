@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import com.lox.Scanner;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+
+// Scan large generated sources with every scanner mode in the same JVM and
+// report the median throughput of each, along with its speedup over the simple
+// scanner, after some warm-up runs so that the JVM has compiled the scanner.
+// Only scanning is timed: tokens are pulled one by one, as by the parser.
+public class ScannerBenchmark {
+  private static final int WARMUP_RUNS = 5;
+  private static final int SOURCE_SIZE = 8 << 20;
+  // Identifiers are drawn from a vocabulary, as in real sources, rather than
+  // timing the creation of millions of symbols
+  private static final int VOCABULARY_SIZE = 4096;
+
+  // Uses the tokens, so that the JVM cannot drop them
+  private static int checksum = 0;
+
+  private static final String[] KEYWORDS = {
+      "and", "class", "else", "false", "for", "fun", "if", "nil", "or", "print", "return", "super", "this",
+      "true", "var", "while",
+  };
+  private static final String[] OPERATORS = {
+      "(", ")", "{", "}", ",", ".", "-", "+", ";", "*", "/", "!", "!=", "=", "==", "<", "<=", ">", ">=",
+  };
+
+  public static void main(String[] args) {
+    int runs = 20;
+    for (String arg : args) {
+      if (arg.startsWith("--runs=")) {
+        runs = Integer.parseInt(arg.substring("--runs=".length()));
+      } else {
+        System.out.println("Usage: ScannerBenchmark [--runs=N]");
+        System.exit(2);
+      }
+    }
+
+    final Scanner.Mode[] modes = Scanner.Mode.values();
+    System.out.print(String.format("%-16s", "source"));
+    for (Scanner.Mode mode : modes) {
+      System.out.print(String.format("%26s", mode.name().toLowerCase()));
+    }
+    System.out.println();
+
+    final Random random = new Random(42);
+    final String[] vocabulary = new String[VOCABULARY_SIZE];
+    for (int i = 0; i < vocabulary.length; ++i) {
+      vocabulary[i] = identifier(random);
+    }
+    final String[] names = { "code", "identifiers", "numbers", "operators" };
+    for (String name : names) {
+      final String source = generate(name, vocabulary, random);
+      System.out.print(String.format("%-16s", name));
+      double simple = 0;
+      for (Scanner.Mode mode : modes) {
+        final double median = median(time(source, mode, runs));
+        if (mode == Scanner.Mode.SIMPLE) {
+          simple = median;
+        }
+        System.out.print(String.format("%14.1fMB/s (%6.2fx)", source.length() / median / 1e3, simple / median));
+      }
+      System.out.println();
+    }
+    if (checksum == 42) {
+      System.out.println();
+    }
+  }
+
+  // A source of about `SOURCE_SIZE` chars, mostly made of the tokens `name`
+  // stands for
+  private static String generate(String name, String[] vocabulary, Random random) {
+    final StringBuilder source = new StringBuilder(SOURCE_SIZE + 64);
+    while (source.length() < SOURCE_SIZE) {
+      switch (name) {
+        case "identifiers" -> source.append(pick(vocabulary, random)).append(' ');
+        case "numbers" -> source.append(number(random)).append(' ');
+        case "operators" -> source.append(pick(OPERATORS, random)).append(' ');
+        case "code" -> {
+          switch (random.nextInt(8)) {
+            case 0 -> source.append("var ").append(pick(vocabulary, random)).append(" = ").append(number(random))
+                .append(";\n");
+            case 1 -> source.append("if (").append(pick(vocabulary, random)).append(" <= ").append(number(random))
+                .append(") {\n  print \"").append(pick(vocabulary, random)).append("\";\n}\n");
+            case 2 -> source.append("// ").append(pick(vocabulary, random)).append(' ')
+                .append(pick(vocabulary, random)).append('\n');
+            case 3 -> source.append("fun ").append(pick(vocabulary, random)).append("(a, b) {\n  return a * b + ")
+                .append(number(random)).append(";\n}\n");
+            case 4 -> source.append("  this.").append(pick(vocabulary, random)).append(" = ")
+                .append(pick(vocabulary, random)).append(".").append(pick(vocabulary, random)).append("(a, b);\n");
+            default -> source.append(pick(KEYWORDS, random)).append(' ').append(pick(vocabulary, random)).append(' ')
+                .append(pick(OPERATORS, random)).append(' ');
+          }
+        }
+        default -> throw new Error("Unexpected source: " + name);
+      }
+    }
+    return source.toString();
+  }
+
+  private static String pick(String[] strings, Random random) {
+    return strings[random.nextInt(strings.length)];
+  }
+
+  private static String identifier(Random random) {
+    final String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_0123456789";
+    final int length = 1 + random.nextInt(10);
+    final StringBuilder identifier = new StringBuilder(length);
+    for (int i = 0; i < length; ++i) {
+      // Identifiers do not start with a digit
+      identifier.append(chars.charAt(random.nextInt(i == 0 ? chars.length() - 10 : chars.length())));
+    }
+    return identifier.toString();
+  }
+
+  private static String number(Random random) {
+    return random.nextBoolean() ? Integer.toString(random.nextInt(100000))
+        : String.format("%d.%d", random.nextInt(1000), random.nextInt(1000));
+  }
+
+  private static double[] time(String source, Scanner.Mode mode, int runs) {
+    final double[] times = new double[runs];
+    for (int i = -WARMUP_RUNS; i < runs; ++i) {
+      final long start = System.nanoTime();
+      final Scanner scanner = new Scanner(source, mode);
+      Token token;
+      do {
+        token = scanner.nextToken();
+        checksum += token.type.ordinal() + token.endOffset;
+      } while (token.type != TokenType.EOF);
+      if (i >= 0) {
+        times[i] = (System.nanoTime() - start) / 1e6;
+      }
+    }
+    return times;
+  }
+
+  private static double median(double[] times) {
+    final double[] sorted = times.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
@@ -1,52 +1,158 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.io.PrintStream;
 import java.nio.file.Paths;
 import java.util.List;
 
+import com.lox.AstCache;
 import com.lox.Environment;
+import com.lox.Instrumentation;
 import com.lox.Interpreter;
 import com.lox.InterpreterException;
+import com.lox.LineIndex;
 import com.lox.Parser;
 import com.lox.ParserException;
+import com.lox.Profiler;
 import com.lox.Scanner;
 import com.lox.ScannerException;
+import com.lox.SourceFile;
 import com.lox.ast.Stmt;
-import com.lox.ast.Token;
 import com.lox.object.LoxNil;
 import com.lox.object.LoxObject;
 import com.lox.utils.Pair;
 
 public class Jlox {
   public static void main(String[] args) throws IOException, InterpreterException {
-    if (args.length > 1) {
-      System.out.println("Usage: jlox [script]");
-      System.exit(2);
-    } else if (args.length == 1) {
-      runFile(args[0]);
+    Interpreter.Engine engine = Interpreter.Engine.TREE_WALKER;
+    String script = null;
+    AstCache cache = null;
+    String profile = null;
+    int profileHz = Profiler.DEFAULT_HZ;
+    boolean instrument = false;
+    for (String arg : args) {
+      if (parseEngine(arg) != null) {
+        engine = parseEngine(arg);
+      } else if (arg.equals("--dump-hot")) {
+        System.setProperty("jlox.dumpHot", "true");
+      } else if (arg.equals("--dump-inline")) {
+        System.setProperty("jlox.dumpInline", "true");
+      } else if (arg.startsWith("--cache-dir=")) {
+        cache = new AstCache(Paths.get(arg.substring("--cache-dir=".length())));
+      } else if (arg.startsWith("--profile=")) {
+        profile = arg.substring("--profile=".length());
+      } else if (arg.startsWith("--profile-hz=")) {
+        profileHz = parseHz(arg.substring("--profile-hz=".length()));
+        if (profileHz <= 0) {
+          printUsage();
+        }
+      } else if (arg.equals("--instrument")) {
+        instrument = true;
+      } else if (script == null && !arg.startsWith("--")) {
+        script = arg;
+      } else {
+        printUsage();
+      }
+    }
+
+    if (instrument && engine != Interpreter.Engine.TREE_WALKER) {
+      printUsage();
+    }
+    if (script != null) {
+      runFile(script, engine, cache, profile, profileHz, instrument);
+    } else if (profile != null || instrument) {
+      printUsage();
     } else {
-      runPrompt();
+      runPrompt(engine);
     }
   }
 
-  public static void runFile(String path) throws IOException, InterpreterException {
+  // Return null if `arg` is not an `--engine=` option
+  static Interpreter.Engine parseEngine(String arg) {
+    return switch (arg) {
+      case "--engine=tree" -> Interpreter.Engine.TREE_WALKER;
+      case "--engine=closure" -> Interpreter.Engine.CLOSURE_COMPILER;
+      case "--engine=vm" -> Interpreter.Engine.BYTECODE_VM;
+      case "--engine=tiered" -> Interpreter.Engine.TIERED;
+      default -> null;
+    };
+  }
+
+  // Return 0 if `value` is not a number
+  private static int parseHz(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: jlox [--engine=tree|closure|vm|tiered] [--dump-hot] [--dump-inline] [--cache-dir=DIR]\n"
+        + "            [--profile=FILE [--profile-hz=N]] [--instrument] [script]");
+    System.exit(2);
+  }
+
+  // `cache` is null if parsed scripts are not cached. If `profile` is not
+  // null, the script is profiled and the samples are written to this file in
+  // the collapsed stack format. If `instrument` is set, the script is run
+  // with the instrumentation of the tree walker, which reports on stderr
+  public static void runFile(String path, Interpreter.Engine engine, AstCache cache, String profile, int profileHz,
+      boolean instrument) throws IOException, InterpreterException {
+    final CharSequence source = SourceFile.load(Paths.get(path));
+    final Profiler profiler = profile == null ? null : new Profiler(source, profileHz);
+    final Instrumentation instrumentation = instrument ? new Instrumentation() : null;
     Interpreter interpreter;
     try {
-      interpreter = new Interpreter();
+      interpreter = new Interpreter(engine, profiler, instrumentation);
     } catch (Exception e) {
       throw new Error("Failed to construct interpreter");
     }
-    byte[] bytes = Files.readAllBytes(Paths.get(path));
-    run(interpreter, Environment.createGlobals(), new String(bytes, Charset.defaultCharset()));
+
+    List<Stmt> stmts = cache == null ? null : cache.load(source);
+    if (stmts == null) {
+      stmts = parse(source);
+      if (stmts == null) {
+        return;
+      }
+      if (cache != null) {
+        cache.store(source, stmts);
+      }
+    }
+
+    if (profiler != null) {
+      profiler.start();
+    }
+    try {
+      run(interpreter, Environment.createGlobals(), stmts);
+    } finally {
+      if (profiler != null) {
+        try {
+          profiler.stop();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        try (PrintStream out = new PrintStream(profile)) {
+          profiler.writeCollapsed(out);
+        }
+      }
+    }
+    if (instrumentation != null) {
+      final LineIndex lines = new LineIndex(source);
+      instrumentation.writeReport(System.err, offset -> {
+        if (offset == -1) {
+          return "?";
+        }
+        return lines.lineOf(offset) + ":" + lines.columnOf(offset);
+      });
+    }
   }
 
-  public static void runPrompt() throws IOException, InterpreterException {
+  public static void runPrompt(Interpreter.Engine engine) throws IOException, InterpreterException {
     Interpreter interpreter;
     Environment env = Environment.createGlobals();
     try {
-      interpreter = new Interpreter();
+      interpreter = new Interpreter(engine);
     } catch (Exception e) {
       throw new Error("Failed to construct interpreter");
     }
@@ -65,59 +171,63 @@ public class Jlox {
   }
 
   private static LoxObject run(Interpreter interpreter, Environment env, String source) {
-    final Scanner scanner = new Scanner(source);
-    final Pair<List<Token>, List<ScannerException>> scannerRes = scanner.tokenize();
-    if (scannerRes.second.size() > 0) {
-      for (ScannerException e: scannerRes.second) {
-        reportError(e, source);
-      }
-      return LoxNil.NIL;
-    }
-
-    final Parser parser = new Parser(scannerRes.first);
-    final Pair<List<Stmt>, List<ParserException>> parserRes = parser.parse();
-    if (parserRes.second.size() > 0) {
-      for (ParserException e: parserRes.second) {
-        reportError(e, source);
-      }
+    final List<Stmt> stmts = parse(source);
+    if (stmts == null) {
       return LoxNil.NIL;
     }
+    return run(interpreter, env, stmts);
+  }
 
+  static LoxObject run(Interpreter interpreter, Environment env, List<Stmt> stmts) {
     LoxObject res = LoxNil.NIL;
 
     try {
-      for (Stmt stmt: parserRes.first) {
+      for (Stmt stmt: stmts) {
         res = interpreter.evaluateStmt(stmt, env);
       }
       return res;
     } catch (InterpreterException e) {
-      reportError(e, source);
+      reportError(e);
       return LoxNil.NIL;
     }
   }
 
-  private static void reportError(ScannerException e, String source) {
-    final Pair<Long, Long> startPos = getLineAndCol(e.startOffset, source);
-    final Pair<Long, Long> endPos = getLineAndCol(e.endOffset, source);
-    System.err.println(String.format("[Error] (line %s column %s) %s", startPos.first, startPos.second, e.message));
+  // Return null after reporting the errors if `source` does not parse. The
+  // parser pulls the tokens from the scanner one at a time. As when scanning
+  // before parsing, scanner errors are reported instead of the parser errors
+  static List<Stmt> parse(CharSequence source) {
+    final Scanner scanner = new Scanner(source);
+    final Parser parser = new Parser(scanner);
+    final Pair<List<Stmt>, List<ParserException>> parserRes = parser.parse();
+    if (scanner.errors().size() > 0) {
+      final LineIndex lines = new LineIndex(source);
+      for (ScannerException e: scanner.errors()) {
+        reportError(e, lines);
+      }
+      return null;
+    }
+
+    if (parserRes.second.size() > 0) {
+      final LineIndex lines = new LineIndex(source);
+      for (ParserException e: parserRes.second) {
+        reportError(e, lines);
+      }
+      return null;
+    }
+    return parserRes.first;
   }
 
-  private static void reportError(ParserException e, String source) {
-    final Pair<Long, Long> startPos = getLineAndCol(e.startOffset, source);
-    final Pair<Long, Long> endPos = getLineAndCol(e.endOffset, source);
-    System.err.println(String.format("[Error] (line %s column %s) %s", startPos.first, startPos.second, e.message));
+  private static void reportError(ScannerException e, LineIndex lines) {
+    System.err.println(String.format("[Error] (line %s column %s) %s", lines.lineOf(e.startOffset),
+        lines.columnOf(e.startOffset), e.message));
   }
 
-  private static void reportError(InterpreterException e, String source) {
-    System.err.println(e.message);
+  private static void reportError(ParserException e, LineIndex lines) {
+    System.err.println(String.format("[Error] (line %s column %s) %s", lines.lineOf(e.startOffset),
+        lines.columnOf(e.startOffset), e.message));
   }
 
-  private static Pair<Long, Long> getLineAndCol(int offset, String source) {
-    final String beforeSource = source.substring(0, offset);
-    final long line = beforeSource.chars()
-                                  .filter(ch -> ch == '\n')
-                                  .count() + 1;
-    final long col = beforeSource.length() - beforeSource.lastIndexOf('\n');
-    return new Pair<>(line, col);
+  private static void reportError(InterpreterException e) {
+    System.err.println(e.message);
   }
 }
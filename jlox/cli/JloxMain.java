@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.lox.Environment;
+import com.lox.Interpreter;
+import com.lox.InterpreterException;
+import com.lox.ast.AstSerializer;
+import com.lox.ast.Stmt;
+
+// Entry point of the JARs written by `Jloxc`: run the syntax tree embedded in
+// the JAR
+public class JloxMain {
+  static final String SCRIPT_ENTRY = "script.ast";
+
+  public static void main(String[] args) throws IOException, InterpreterException {
+    Interpreter.Engine engine = Interpreter.Engine.TREE_WALKER;
+    for (String arg : args) {
+      if (Jlox.parseEngine(arg) == null) {
+        System.out.println("Usage: java -jar script.jar [--engine=tree|closure|vm|tiered]");
+        System.exit(2);
+      }
+      engine = Jlox.parseEngine(arg);
+    }
+
+    final byte[] ast;
+    try (InputStream in = JloxMain.class.getResourceAsStream("/" + SCRIPT_ENTRY)) {
+      if (in == null) {
+        throw new IOException("No script embedded, build the JAR with jloxc");
+      }
+      ast = in.readAllBytes();
+    }
+    final List<Stmt> stmts = AstSerializer.deserialize(ByteBuffer.wrap(ast));
+    Jlox.run(new Interpreter(engine), Environment.createGlobals(), stmts);
+  }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import com.lox.SourceFile;
+import com.lox.ast.AstSerializer;
+import com.lox.ast.Stmt;
+
+// Compile a script ahead of time into a standalone JAR: the syntax tree is
+// serialized with `AstSerializer` and packed along with the interpreter's
+// classes and `JloxMain`, which runs it without scanning nor parsing it.
+public class Jloxc {
+  // The classes copied into the JAR: the interpreter and the launchers
+  private static final String RUNTIME_PACKAGE = "com/lox/";
+  private static final List<String> LAUNCHER_CLASSES = List.of("Jlox.class", "JloxMain.class");
+
+  public static void main(String[] args) throws IOException {
+    String script = null;
+    String output = null;
+    for (int i = 0; i < args.length; ++i) {
+      if (args[i].equals("-o") && i + 1 < args.length) {
+        output = args[++i];
+      } else if (script == null && !args[i].startsWith("-")) {
+        script = args[i];
+      } else {
+        printUsage();
+      }
+    }
+    if (script == null) {
+      printUsage();
+    }
+    if (output == null) {
+      output = script.replaceFirst("\\.lox$", "") + ".jar";
+    }
+
+    final CharSequence source = SourceFile.load(Paths.get(script));
+    final List<Stmt> stmts = Jlox.parse(source);
+    if (stmts == null) {
+      System.exit(65);
+    }
+    writeJar(Paths.get(output), AstSerializer.serialize(stmts));
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage: jloxc script [-o output.jar]");
+    System.exit(2);
+  }
+
+  private static void writeJar(Path output, byte[] ast) throws IOException {
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "JloxMain");
+
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(output), manifest)) {
+      jar.putNextEntry(new JarEntry(JloxMain.SCRIPT_ENTRY));
+      jar.write(ast);
+      jar.closeEntry();
+      copyRuntime(jar);
+    }
+  }
+
+  // Copy the runtime classes from where this class was loaded, either a
+  // directory of classes or a JAR
+  private static void copyRuntime(JarOutputStream jar) throws IOException {
+    final Path location;
+    try {
+      location = Paths.get(Jloxc.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException("Cannot locate the runtime classes", e);
+    }
+
+    if (Files.isDirectory(location)) {
+      try (Stream<Path> files = Files.walk(location)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          final String name = location.relativize(file).toString().replace('\\', '/');
+          if (Files.isRegularFile(file) && isRuntimeClass(name)) {
+            try (InputStream in = Files.newInputStream(file)) {
+              copyEntry(jar, name, in);
+            }
+          }
+        }
+      }
+      return;
+    }
+    try (JarFile source = new JarFile(location.toFile())) {
+      for (JarEntry entry : (Iterable<JarEntry>) source.stream()::iterator) {
+        if (isRuntimeClass(entry.getName())) {
+          try (InputStream in = source.getInputStream(entry)) {
+            copyEntry(jar, entry.getName(), in);
+          }
+        }
+      }
+    }
+  }
+
+  // The tests are compiled in the same package as the interpreter (see the
+  // Makefile), their classes and the inner classes of these are left out
+  private static boolean isRuntimeClass(String name) {
+    if (!name.endsWith(".class")) {
+      return false;
+    }
+    if (LAUNCHER_CLASSES.contains(name)) {
+      return true;
+    }
+    final String cls = name.substring(name.lastIndexOf('/') + 1).split("[$.]")[0];
+    return name.startsWith(RUNTIME_PACKAGE) && !cls.endsWith("Test") && !cls.endsWith("TestUtils");
+  }
+
+  private static void copyEntry(JarOutputStream jar, String name, InputStream in) throws IOException {
+    jar.putNextEntry(new JarEntry(name));
+    in.transferTo((OutputStream) jar);
+    jar.closeEntry();
+  }
+}
@@ -0,0 +1,99 @@
+package com.lox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.lox.ast.AstSerializer;
+import com.lox.ast.Stmt;
+
+// A directory of syntax trees serialized by `AstSerializer`, keyed by the
+// SHA-256 of the source they were parsed from, so that running the same
+// script again skips scanning & parsing.
+//
+// Entries are read through a memory-mapped file. An entry written by another
+// version of the format, or corrupted, is a miss and is replaced upon the next
+// store. Failing to read or write the cache never fails the run.
+public class AstCache {
+  private static final int DIGEST_CHUNK_SIZE = 8192;
+
+  private final Path dir;
+
+  public AstCache(Path dir) {
+    this.dir = dir;
+  }
+
+  // Return null on a miss
+  public List<Stmt> load(CharSequence source) {
+    final Path entry = this.entryOf(source);
+    try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return AstSerializer.deserialize(buffer);
+    } catch (IOException | RuntimeException e) {
+      // Including a file too large to be mapped
+      return null;
+    } catch (InternalError e) {
+      // A fault while accessing the mapped file, e.g. truncated meanwhile
+      return null;
+    }
+  }
+
+  public void store(CharSequence source, List<Stmt> stmts) {
+    final Path entry = this.entryOf(source);
+    try {
+      Files.createDirectories(this.dir);
+      // Concurrent runs never see a partially written entry
+      final Path tmp = Files.createTempFile(this.dir, entry.getFileName().toString(), ".tmp");
+      try {
+        Files.write(tmp, AstSerializer.serialize(stmts));
+        Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      // The cache is only an optimization
+    }
+  }
+
+  // The source is encoded a chunk at a time, not copied as a whole
+  private Path entryOf(CharSequence source) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      final CharBuffer in = CharBuffer.wrap(source);
+      final ByteBuffer out = ByteBuffer.allocate(DIGEST_CHUNK_SIZE);
+      while (encoder.encode(in, out, true).isOverflow()) {
+        update(digest, out);
+      }
+      while (encoder.flush(out).isOverflow()) {
+        update(digest, out);
+      }
+      update(digest, out);
+      final byte[] hash = digest.digest();
+      return this.dir.resolve(HexFormat.of().formatHex(hash) + ".ast");
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error("SHA-256 is required to be supported", e);
+    }
+  }
+
+  private static void update(MessageDigest digest, ByteBuffer chunk) {
+    chunk.flip();
+    digest.update(chunk);
+    chunk.clear();
+  }
+}
@@ -0,0 +1,1130 @@
+package com.lox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+import com.lox.ast.Stmt.FuncStmt;
+import com.lox.object.InlineCache;
+import com.lox.object.LoxClass;
+import com.lox.object.LoxFunction;
+import com.lox.object.LoxNil;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+
+// An alternative to the tree-walking `Interpreter`: resolved statements are
+// compiled once into a tree of executable nodes, which are then executed
+// instead of the syntax tree.
+//
+// Every decision the tree walker makes upon each visit is made here once at
+// compile time: there is a node class per operator, per kind of literal and
+// per kind of variable (local or global), so executing a node never switches
+// on the node type or on the operator. Function bodies are compiled upon their
+// first call and kept in `bodies`.
+//
+// The semantics, including the order of evaluation and the runtime errors,
+// are the same as the ones of the tree walker.
+public class ClosureCompiler {
+  // Same as `Interpreter.RETURN_SIGNAL`
+  private static final LoxObject RETURN_SIGNAL = new LoxObject() {
+    @Override
+    public String toString() {
+      return "<return>";
+    }
+
+    @Override
+    public LoxClass cls() {
+      return LoxObject.OBJECT;
+    }
+  };
+  private LoxObject returnValue = null;
+  // The compiled bodies of the functions called so far
+  private final Map<FuncStmt, StmtNode> bodies = new HashMap<>();
+  // Kept up to date with the calls of user functions if set
+  private final Profiler profiler;
+
+  public ClosureCompiler() {
+    this(null);
+  }
+
+  public ClosureCompiler(Profiler profiler) {
+    this.profiler = profiler;
+  }
+
+  // Compile & execute a resolved top-level statement in the global
+  // environment `env`
+  public LoxObject execute(Stmt stmt, Environment env) throws InterpreterException {
+    final LoxObject res = this.compileStmt(stmt).execute(env);
+    if (res == RETURN_SIGNAL) {
+      this.returnValue = null;
+      throw new InterpreterException("Cannot `return` outside a function body");
+    }
+    return res;
+  }
+
+  // Call a user function, `slots` are the initial values of its parameter
+  // scope: the receiver if `func` is a method followed by the `argCount`
+  // arguments
+  public LoxObject call(LoxFunction.LoxUserFunction func, LoxObject[] slots, int argCount)
+      throws InterpreterException {
+    if (func.arity() != argCount) {
+      throw new InterpreterException(String.format("Expected %s argument(s) but got %s", func.arity(), argCount));
+    }
+
+    if (func.node.redeclaredParam != null) {
+      throw new InterpreterException("Redeclared variable '" + func.node.redeclaredParam + "'");
+    }
+
+    StmtNode body = this.bodies.get(func.node);
+    if (body == null) {
+      body = this.compileBlock(func.node.body);
+      this.bodies.put(func.node, body);
+    }
+    if (this.profiler != null) {
+      this.profiler.enter(func.node);
+    }
+    LoxObject value = LoxNil.NIL;
+    if (body.execute(new Environment(func.env(), slots)) == RETURN_SIGNAL) {
+      value = this.returnValue;
+      this.returnValue = null;
+    }
+    if (this.profiler != null) {
+      this.profiler.exit();
+    }
+    return value;
+  }
+
+  boolean isCompiled(FuncStmt func) {
+    return this.bodies.containsKey(func);
+  }
+
+  // Drop the compiled body of `func`, it's compiled again if called
+  void discard(FuncStmt func) {
+    this.bodies.remove(func);
+  }
+
+  private StmtNode compileStmt(Stmt stmt) {
+    return switch (stmt) {
+      case Stmt.PrintStmt p -> new Print(this.compileExpr(p.expr));
+      case Stmt.ExprStmt e -> new Expression(this.compileExpr(e.expr));
+      case Stmt.DeclStmt d -> {
+        final ExprNode value = d.expr == null ? null : this.compileExpr(d.expr);
+        if (d.slot == -1) {
+          yield new DefineGlobal(d.id.symbol(), value);
+        }
+        yield new DefineLocal(d.slot, value);
+      }
+      case Stmt.IfStmt i -> new If(this.compileExpr(i.cond), this.compileStmt(i.thenBranch),
+          i.elseBranch == null ? null : this.compileStmt(i.elseBranch));
+      case Stmt.WhileStmt w -> new While(this.compileExpr(w.cond), this.compileStmt(w.body));
+      case Stmt.ForStmt f -> new For(f.init instanceof Stmt.DeclStmt, this.compileStmt(f.init),
+          this.compileExpr(f.cond.expr), this.compileExpr(f.post), this.compileStmt(f.body));
+      case Stmt.BlockStmt b -> this.compileBlock(b);
+      case Stmt.FuncStmt f -> new DefineFunction(f);
+      case Stmt.ReturnStmt r -> new Return(this.compileExpr(r.expr));
+      case Stmt.ClsStmt c -> {
+        final ExprNode supercls = c.supercls == null ? null
+            : this.compileVariable(c.supercls.symbol(), c.superclsDepth, c.superclsSlot);
+        yield new DefineClass(c, supercls);
+      }
+      default -> throw new Error("Non-exhaustive check");
+    };
+  }
+
+  private StmtNode compileBlock(Stmt.BlockStmt block) {
+    final StmtNode[] stmts = new StmtNode[block.stmts.size()];
+    for (int i = 0; i < stmts.length; ++i) {
+      stmts[i] = this.compileStmt(block.stmts.get(i));
+    }
+    return new Block(stmts, block.scopeSize, block.redeclared);
+  }
+
+  private ExprNode compileExpr(Expr expr) {
+    return switch (expr) {
+      case Expr.Binary b -> this.compileBinary(b);
+      case Expr.Unary u -> switch (u.op.type) {
+        case TokenType.BANG -> new Not(this.compileExpr(u.inner));
+        case TokenType.MINUS -> new Negate(this.compileExpr(u.inner));
+        default -> throw new Error(String.format("Unreachable: Unexpected unary operator '%s'", u.op.lexeme()));
+      };
+      case Expr.Grouping g -> this.compileExpr(g.inner);
+      case Expr.Literal l -> {
+        final LoxObject value = ValueUtils.literalValue(l.value);
+        if (value instanceof LoxNumber n) {
+          yield new NumberConstant(n);
+        }
+        yield new Constant(value);
+      }
+      case Expr.Variable v -> this.compileVariable(v.var.symbol(), v.depth, v.slot);
+      case Expr.This t -> this.compileVariable(SpecialSymbols.THIS_OBJECT, t.depth, SpecialSymbols.THIS_OBJECT_SLOT);
+      case Expr.Call c -> {
+        final ExprNode[] args = this.compileExprs(c.params);
+        if (c.callee instanceof Expr.Get g) {
+          yield new Invoke(this.compileExpr(g.object), g, args);
+        }
+        yield new Call(this.compileExpr(c.callee), args);
+      }
+      case Expr.Get g -> new Get(this.compileExpr(g.object), g);
+      case Expr.Set s -> new Set(this.compileExpr(s.object), s, this.compileExpr(s.value));
+      case Expr.SuperGet s -> new SuperGet(this.compileSuperClass(s.depth), this.compileThisObject(s.depth),
+          s.member.symbol());
+      case Expr.SuperCall s -> new SuperCall(this.compileSuperClass(s.depth), this.compileThisObject(s.depth),
+          this.compileExprs(s.params));
+      default -> throw new Error("Non-exhaustive check");
+    };
+  }
+
+  private ExprNode compileBinary(Expr.Binary bin) {
+    if (bin.op.type == TokenType.EQUAL) {
+      final Expr.Variable var = (Expr.Variable) bin.left;
+      final ExprNode value = this.compileExpr(bin.right);
+      if (var.depth == -1) {
+        return new AssignGlobal(var.var.symbol(), value);
+      }
+      return new AssignLocal(var.depth, var.slot, var.var.symbol(), value);
+    }
+
+    final ExprNode left = this.compileExpr(bin.left);
+    final ExprNode right = this.compileExpr(bin.right);
+    return switch (bin.op.type) {
+      case TokenType.OR -> new Or(left, right);
+      case TokenType.AND -> new And(left, right);
+      case TokenType.PLUS -> new Add(bin.op, left, right);
+      case TokenType.MINUS -> new Subtract(bin.op, left, right);
+      case TokenType.STAR -> new Multiply(bin.op, left, right);
+      case TokenType.SLASH -> new Divide(bin.op, left, right);
+      case TokenType.LESS -> new Less(bin.op, left, right);
+      case TokenType.LESS_EQUAL -> new LessEqual(bin.op, left, right);
+      case TokenType.GREATER -> new Greater(bin.op, left, right);
+      case TokenType.GREATER_EQUAL -> new GreaterEqual(bin.op, left, right);
+      case TokenType.EQUAL_EQUAL -> new Equal(left, right);
+      case TokenType.BANG_EQUAL -> new Not(new Equal(left, right));
+      default -> throw new Error(String.format("Unreachable: Unexpected binary operator '%s'", bin.op.lexeme()));
+    };
+  }
+
+  private ExprNode[] compileExprs(List<Expr> exprs) {
+    final ExprNode[] nodes = new ExprNode[exprs.size()];
+    for (int i = 0; i < nodes.length; ++i) {
+      nodes[i] = this.compileExpr(exprs.get(i));
+    }
+    return nodes;
+  }
+
+  private ExprNode compileVariable(Symbol name, int depth, int slot) {
+    if (depth == -1) {
+      return new GlobalVariable(name);
+    }
+    return new LocalVariable(depth, slot, name);
+  }
+
+  // `depth` is the depth of the parameter scope of the enclosing method, see
+  // `Interpreter.lookupThisObject`
+  private ExprNode compileThisObject(int depth) {
+    return this.compileVariable(SpecialSymbols.THIS_OBJECT, depth, SpecialSymbols.THIS_OBJECT_SLOT);
+  }
+
+  private ExprNode compileSuperClass(int depth) {
+    return this.compileVariable(SpecialSymbols.SUPER_CLASS, depth == -1 ? -1 : depth + 1,
+        SpecialSymbols.SUPER_CLASS_SLOT);
+  }
+
+  // Dispatched with `instanceof` rather than a pattern `switch`, which is not
+  // optimized as well by the JVM on this hot path
+  private LoxObject callValue(LoxObject callee, LoxObject[] args) throws InterpreterException {
+    if (callee instanceof LoxFunction.LoxUserFunction u) {
+      return this.call(u, args, args.length);
+    }
+    if (callee instanceof LoxFunction.LoxBoundMethod b) {
+      return this.call(b.method, this.withReceiver(b.receiver, args), args.length);
+    }
+    if (callee instanceof LoxFunction.LoxForeignFunction f) {
+      if (f.arity() != args.length) {
+        throw new InterpreterException(String.format("Expected %s argument(s) but got %s", f.arity(), args.length));
+      }
+      return f.call(Arrays.asList(args));
+    }
+    if (callee instanceof LoxClass c) {
+      return this.construct(c, args);
+    }
+    throw new InterpreterException("Callee is not of Callable type");
+  }
+
+  private LoxObject construct(LoxClass cls, LoxObject[] args) throws InterpreterException {
+    final LoxObject obj = cls.instantiate();
+    final LoxObject constructor = cls.lookupMethod(SpecialSymbols.CONSTRUCTOR);
+    if (constructor == LoxNil.NIL) {
+      if (args.length > 0) {
+        throw new InterpreterException(String.format("Expected %s argument(s) but got %s", 0, args.length));
+      }
+      return obj;
+    }
+    this.callValue(obj.bindMethod(constructor), args);
+    return obj;
+  }
+
+  private LoxObject[] withReceiver(LoxObject receiver, LoxObject[] args) {
+    final LoxObject[] slots = new LoxObject[args.length + 1];
+    slots[SpecialSymbols.THIS_OBJECT_SLOT] = receiver;
+    System.arraycopy(args, 0, slots, 1, args.length);
+    return slots;
+  }
+
+  private static InterpreterException unsupportedOperands(Token op, LoxObject left, LoxObject right) {
+    // A null operand is a Number that was evaluated unboxed
+    return new InterpreterException(String.format("Unsupported operator '%s' on %s and %s", op.lexeme(),
+        left == null ? LoxNumber.OBJECT.name : TypecheckUtils.typenameOf(left),
+        right == null ? LoxNumber.OBJECT.name : TypecheckUtils.typenameOf(right)));
+  }
+
+  // Thrown by `ExprNode.evaluateDouble` when the value is not a Number, so
+  // that the enclosing operator can report the error with both operands. It
+  // is never serialized
+  @SuppressWarnings("serial")
+  private static class NotANumber extends Exception {
+    public final LoxObject value;
+
+    public NotANumber(LoxObject value) {
+      super(null, null, false, false);
+      this.value = value;
+    }
+  }
+
+  private abstract class StmtNode {
+    // Return the value of the statement, `RETURN_SIGNAL` if a `return`
+    // statement was executed
+    abstract LoxObject execute(Environment env) throws InterpreterException;
+  }
+
+  private abstract class ExprNode {
+    abstract LoxObject evaluate(Environment env) throws InterpreterException;
+
+    // Arithmetic & comparison nodes call this on their operands, numeric nodes
+    // override it to avoid boxing their result
+    double evaluateDouble(Environment env) throws InterpreterException, NotANumber {
+      final LoxObject value = this.evaluate(env);
+      if (value instanceof LoxNumber n) {
+        return n.value;
+      }
+      throw new NotANumber(value);
+    }
+
+    // Conditions call this, comparison nodes override it to skip the Boolean
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      return ValueUtils.isTruthy(this.evaluate(env));
+    }
+  }
+
+  private final class Print extends StmtNode {
+    private final ExprNode expr;
+
+    Print(ExprNode expr) {
+      this.expr = expr;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      System.out.println(this.expr.evaluate(env).toString());
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class Expression extends StmtNode {
+    private final ExprNode expr;
+
+    Expression(ExprNode expr) {
+      this.expr = expr;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      return this.expr.evaluate(env);
+    }
+  }
+
+  private final class DefineLocal extends StmtNode {
+    private final int slot;
+    // null if the variable has no initializer
+    private final ExprNode value;
+
+    DefineLocal(int slot, ExprNode value) {
+      this.slot = slot;
+      this.value = value;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      env.define(this.slot, this.value == null ? LoxNil.NIL : this.value.evaluate(env));
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class DefineGlobal extends StmtNode {
+    private final Symbol name;
+    // null if the variable has no initializer
+    private final ExprNode value;
+
+    DefineGlobal(Symbol name, ExprNode value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      env.defineGlobal(this.name, this.value == null ? LoxNil.NIL : this.value.evaluate(env));
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class If extends StmtNode {
+    private final ExprNode cond;
+    private final StmtNode thenBranch;
+    private final StmtNode elseBranch;
+
+    If(ExprNode cond, StmtNode thenBranch, StmtNode elseBranch) {
+      this.cond = cond;
+      this.thenBranch = thenBranch;
+      this.elseBranch = elseBranch;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      if (this.cond.evaluateTruthy(env)) {
+        return this.thenBranch.execute(env);
+      }
+      return this.elseBranch != null ? this.elseBranch.execute(env) : LoxNil.NIL;
+    }
+  }
+
+  private final class While extends StmtNode {
+    private final ExprNode cond;
+    private final StmtNode body;
+
+    While(ExprNode cond, StmtNode body) {
+      this.cond = cond;
+      this.body = body;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      while (this.cond.evaluateTruthy(env)) {
+        if (this.body.execute(env) == RETURN_SIGNAL) {
+          return RETURN_SIGNAL;
+        }
+      }
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class For extends StmtNode {
+    // Whether `init` declares the loop variable in its own scope
+    private final boolean hasScope;
+    private final StmtNode init;
+    private final ExprNode cond;
+    private final ExprNode post;
+    private final StmtNode body;
+
+    For(boolean hasScope, StmtNode init, ExprNode cond, ExprNode post, StmtNode body) {
+      this.hasScope = hasScope;
+      this.init = init;
+      this.cond = cond;
+      this.post = post;
+      this.body = body;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      final Environment initEnv = this.hasScope ? new Environment(env, 1) : env;
+      this.init.execute(initEnv);
+      while (this.cond.evaluateTruthy(initEnv)) {
+        if (this.body.execute(initEnv) == RETURN_SIGNAL) {
+          return RETURN_SIGNAL;
+        }
+        this.post.evaluate(initEnv);
+      }
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class Block extends StmtNode {
+    private final StmtNode[] stmts;
+    // See `Stmt.BlockStmt`
+    private final int scopeSize;
+    private final String redeclared;
+
+    Block(StmtNode[] stmts, int scopeSize, String redeclared) {
+      this.stmts = stmts;
+      this.scopeSize = scopeSize;
+      this.redeclared = redeclared;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      if (this.redeclared != null) {
+        throw new InterpreterException("Redeclared variable '" + this.redeclared + "'");
+      }
+      final Environment blockEnv = this.scopeSize == 0 ? env : new Environment(env, this.scopeSize);
+      LoxObject lastValue = LoxNil.NIL;
+      for (StmtNode stmt : this.stmts) {
+        lastValue = stmt.execute(blockEnv);
+        if (lastValue == RETURN_SIGNAL) {
+          break;
+        }
+      }
+      return lastValue;
+    }
+  }
+
+  private final class DefineFunction extends StmtNode {
+    private final FuncStmt node;
+
+    DefineFunction(FuncStmt node) {
+      this.node = node;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      final LoxFunction func = new LoxFunction.LoxUserFunction(this.node, env);
+      if (this.node.slot == -1) {
+        env.defineGlobal(this.node.name.symbol(), func);
+      } else {
+        env.define(this.node.slot, func);
+      }
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class Return extends StmtNode {
+    private final ExprNode expr;
+
+    Return(ExprNode expr) {
+      this.expr = expr;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      ClosureCompiler.this.returnValue = this.expr.evaluate(env);
+      return RETURN_SIGNAL;
+    }
+  }
+
+  private final class DefineClass extends StmtNode {
+    private final Stmt.ClsStmt node;
+    // null if the class has no superclass
+    private final ExprNode supercls;
+
+    DefineClass(Stmt.ClsStmt node, ExprNode supercls) {
+      this.node = node;
+      this.supercls = supercls;
+    }
+
+    @Override
+    LoxObject execute(Environment env) throws InterpreterException {
+      // The class scope is filled in once the class is created
+      final Environment clsEnv = new Environment(env, 2);
+      final List<LoxFunction> methods = new ArrayList<>();
+      for (FuncStmt func : this.node.methods) {
+        methods.add(new LoxFunction.LoxUserFunction(func, clsEnv));
+      }
+      LoxClass cls = null;
+      if (this.supercls == null) {
+        cls = new LoxClass(this.node.name.lexeme(), methods);
+      } else {
+        final LoxObject supercls = this.supercls.evaluate(env);
+        if (!(supercls instanceof LoxClass)) {
+          throw new InterpreterException(String.format("'%s' is not a class", this.node.supercls.lexeme()));
+        }
+        cls = new LoxClass(this.node.name.lexeme(), (LoxClass) supercls, methods);
+      }
+      clsEnv.define(SpecialSymbols.THIS_CLASS_SLOT, cls);
+      clsEnv.define(SpecialSymbols.SUPER_CLASS_SLOT, cls.supercls);
+      if (this.node.slot == -1) {
+        env.defineGlobal(this.node.name.symbol(), cls);
+      } else {
+        env.define(this.node.slot, cls);
+      }
+      return LoxNil.NIL;
+    }
+  }
+
+  private final class Constant extends ExprNode {
+    private final LoxObject value;
+
+    Constant(LoxObject value) {
+      this.value = value;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) {
+      return this.value;
+    }
+  }
+
+  private final class NumberConstant extends ExprNode {
+    private final LoxNumber value;
+    private final double unboxed;
+
+    NumberConstant(LoxNumber value) {
+      this.value = value;
+      this.unboxed = value.value;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) {
+      return this.value;
+    }
+
+    @Override
+    double evaluateDouble(Environment env) {
+      return this.unboxed;
+    }
+  }
+
+  private final class LocalVariable extends ExprNode {
+    private final int depth;
+    private final int slot;
+    private final Symbol name;
+
+    LocalVariable(int depth, int slot, Symbol name) {
+      this.depth = depth;
+      this.slot = slot;
+      this.name = name;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return env.getAt(this.depth, this.slot, this.name.name);
+    }
+  }
+
+  private final class GlobalVariable extends ExprNode {
+    private final Symbol name;
+
+    GlobalVariable(Symbol name) {
+      this.name = name;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return env.getGlobal(this.name);
+    }
+  }
+
+  private final class AssignLocal extends ExprNode {
+    private final int depth;
+    private final int slot;
+    private final Symbol name;
+    private final ExprNode value;
+
+    AssignLocal(int depth, int slot, Symbol name, ExprNode value) {
+      this.depth = depth;
+      this.slot = slot;
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject value = this.value.evaluate(env);
+      env.assignAt(this.depth, this.slot, this.name.name, value);
+      return value;
+    }
+  }
+
+  private final class AssignGlobal extends ExprNode {
+    private final Symbol name;
+    private final ExprNode value;
+
+    AssignGlobal(Symbol name, ExprNode value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject value = this.value.evaluate(env);
+      env.assignGlobal(this.name, value);
+      return value;
+    }
+  }
+
+  private final class Not extends ExprNode {
+    private final ExprNode inner;
+
+    Not(ExprNode inner) {
+      this.inner = inner;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(!this.inner.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      return !this.inner.evaluateTruthy(env);
+    }
+  }
+
+  private final class Negate extends ExprNode {
+    private final ExprNode inner;
+
+    Negate(ExprNode inner) {
+      this.inner = inner;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return LoxNumber.valueOf(this.evaluateDouble(env));
+    }
+
+    @Override
+    double evaluateDouble(Environment env) throws InterpreterException {
+      try {
+        return -this.inner.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw new InterpreterException(
+            String.format("Unsupported operator '-' on %s", TypecheckUtils.typenameOf(e.value)));
+      }
+    }
+  }
+
+  private final class Or extends ExprNode {
+    private final ExprNode left;
+    private final ExprNode right;
+
+    Or(ExprNode left, ExprNode right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject left = this.left.evaluate(env);
+      if (ValueUtils.isTruthy(left)) {
+        return left;
+      }
+      return this.right.evaluate(env);
+    }
+  }
+
+  private final class And extends ExprNode {
+    private final ExprNode left;
+    private final ExprNode right;
+
+    And(ExprNode left, ExprNode right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject left = this.left.evaluate(env);
+      if (ValueUtils.isFalsy(left)) {
+        return left;
+      }
+      return this.right.evaluate(env);
+    }
+  }
+
+  private final class Equal extends ExprNode {
+    private final ExprNode left;
+    private final ExprNode right;
+
+    Equal(ExprNode left, ExprNode right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(this.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      final LoxObject left = this.left.evaluate(env);
+      final LoxObject right = this.right.evaluate(env);
+      return TypecheckUtils.isSameType(left, right) && ValueUtils.equals(left, right);
+    }
+  }
+
+  // Operators on Numbers, both operands are evaluated before any of them is
+  // reported as not being a Number.
+  //
+  // Every operator evaluates its operands in its own methods rather than in
+  // shared helpers, so that the JVM profiles the operand types per operator
+  private abstract class NumericBinary extends ExprNode {
+    protected final Token op;
+    protected final ExprNode left;
+    protected final ExprNode right;
+
+    NumericBinary(Token op, ExprNode left, ExprNode right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    protected final InterpreterException leftNotANumber(NotANumber e, Environment env) throws InterpreterException {
+      return unsupportedOperands(this.op, e.value, this.right.evaluate(env));
+    }
+
+    protected final InterpreterException rightNotANumber(NotANumber e) {
+      return unsupportedOperands(this.op, null, e.value);
+    }
+  }
+
+  private final class Add extends NumericBinary {
+    Add(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return LoxNumber.valueOf(this.evaluateDouble(env));
+    }
+
+    @Override
+    double evaluateDouble(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left + this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Subtract extends NumericBinary {
+    Subtract(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return LoxNumber.valueOf(this.evaluateDouble(env));
+    }
+
+    @Override
+    double evaluateDouble(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left - this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Multiply extends NumericBinary {
+    Multiply(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return LoxNumber.valueOf(this.evaluateDouble(env));
+    }
+
+    @Override
+    double evaluateDouble(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left * this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Divide extends NumericBinary {
+    Divide(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return LoxNumber.valueOf(this.evaluateDouble(env));
+    }
+
+    @Override
+    double evaluateDouble(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left / this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Less extends NumericBinary {
+    Less(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(this.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left < this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class LessEqual extends NumericBinary {
+    LessEqual(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(this.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left <= this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Greater extends NumericBinary {
+    Greater(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(this.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left > this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class GreaterEqual extends NumericBinary {
+    GreaterEqual(Token op, ExprNode left, ExprNode right) {
+      super(op, left, right);
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return ValueUtils.getLoxBool(this.evaluateTruthy(env));
+    }
+
+    @Override
+    boolean evaluateTruthy(Environment env) throws InterpreterException {
+      final double left;
+      try {
+        left = this.left.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.leftNotANumber(e, env);
+      }
+      try {
+        return left >= this.right.evaluateDouble(env);
+      } catch (NotANumber e) {
+        throw this.rightNotANumber(e);
+      }
+    }
+  }
+
+  private final class Call extends ExprNode {
+    private final ExprNode callee;
+    private final ExprNode[] args;
+
+    Call(ExprNode callee, ExprNode[] args) {
+      this.callee = callee;
+      this.args = args;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject callee = this.callee.evaluate(env);
+      final LoxObject[] args = new LoxObject[this.args.length];
+      for (int i = 0; i < args.length; ++i) {
+        args[i] = this.args[i].evaluate(env);
+      }
+      return ClosureCompiler.this.callValue(callee, args);
+    }
+  }
+
+  // `object.method(args)`, see `Interpreter.evaluateInvoke`
+  private final class Invoke extends ExprNode {
+    private final ExprNode object;
+    private final Symbol property;
+    private final InlineCache cache;
+    private final ExprNode[] args;
+
+    Invoke(ExprNode object, Expr.Get get, ExprNode[] args) {
+      this.object = object;
+      this.property = get.property.symbol();
+      this.cache = get.cache;
+      this.args = args;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject obj = this.object.evaluate(env);
+      final LoxObject method = this.cache.getMethod(obj, this.property);
+      if (!(method instanceof LoxFunction.LoxUserFunction u)) {
+        final LoxObject callee = method == null ? this.cache.get(obj, this.property) : method;
+        final LoxObject[] args = new LoxObject[this.args.length];
+        for (int i = 0; i < args.length; ++i) {
+          args[i] = this.args[i].evaluate(env);
+        }
+        return ClosureCompiler.this.callValue(callee, args);
+      }
+
+      final LoxObject[] slots = new LoxObject[this.args.length + 1];
+      slots[SpecialSymbols.THIS_OBJECT_SLOT] = obj;
+      for (int i = 0; i < this.args.length; ++i) {
+        slots[i + 1] = this.args[i].evaluate(env);
+      }
+      return ClosureCompiler.this.call(u, slots, this.args.length);
+    }
+  }
+
+  private final class Get extends ExprNode {
+    private final ExprNode object;
+    private final Symbol property;
+    private final InlineCache cache;
+
+    Get(ExprNode object, Expr.Get get) {
+      this.object = object;
+      this.property = get.property.symbol();
+      this.cache = get.cache;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      return this.cache.get(this.object.evaluate(env), this.property);
+    }
+  }
+
+  private final class Set extends ExprNode {
+    private final ExprNode object;
+    private final Symbol property;
+    private final InlineCache cache;
+    private final ExprNode value;
+
+    Set(ExprNode object, Expr.Set set, ExprNode value) {
+      this.object = object;
+      this.property = set.property.symbol();
+      this.cache = set.cache;
+      this.value = value;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxObject value = this.value.evaluate(env);
+      this.cache.set(this.object.evaluate(env), this.property, value);
+      return value;
+    }
+  }
+
+  private final class SuperGet extends ExprNode {
+    private final ExprNode supercls;
+    private final ExprNode thisObj;
+    private final Symbol member;
+
+    SuperGet(ExprNode supercls, ExprNode thisObj, Symbol member) {
+      this.supercls = supercls;
+      this.thisObj = thisObj;
+      this.member = member;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxClass superCls = (LoxClass) this.supercls.evaluate(env);
+      final LoxObject thisObj = this.thisObj.evaluate(env);
+      return thisObj.getMethod(this.member, superCls);
+    }
+  }
+
+  private final class SuperCall extends ExprNode {
+    private final ExprNode supercls;
+    private final ExprNode thisObj;
+    private final ExprNode[] args;
+
+    SuperCall(ExprNode supercls, ExprNode thisObj, ExprNode[] args) {
+      this.supercls = supercls;
+      this.thisObj = thisObj;
+      this.args = args;
+    }
+
+    @Override
+    LoxObject evaluate(Environment env) throws InterpreterException {
+      final LoxClass superCls = (LoxClass) this.supercls.evaluate(env);
+      final LoxObject thisObj = this.thisObj.evaluate(env);
+      final LoxObject[] args = new LoxObject[this.args.length];
+      for (int i = 0; i < args.length; ++i) {
+        args[i] = this.args[i].evaluate(env);
+      }
+      final LoxObject constructor = thisObj.getMethod(SpecialSymbols.CONSTRUCTOR, superCls);
+      if (!TypecheckUtils.isNil(constructor)) {
+        ClosureCompiler.this.callValue(constructor, args);
+      }
+      return LoxNil.NIL;
+    }
+  }
+}
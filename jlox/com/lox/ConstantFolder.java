@@ -0,0 +1,237 @@
+package com.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+import com.lox.ast.Stmt.FuncStmt;
+import com.lox.object.LoxBoolean;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+
+// Rewrites unresolved statements so that operators on literals are computed
+// once instead of on every evaluation:
+// - Unary, binary & logical operators whose operands are literals are replaced
+// by their value, groupings are dropped.
+// - `if` statements with a literal condition are replaced by the branch taken,
+// `while` loops with a falsy literal condition are dropped.
+//
+// Operators are only folded if they cannot fail, e.g. `"a" - 1` is left as is
+// so that the interpreter still reports it when it is evaluated. Folding
+// follows the interpreter's semantics exactly, in particular two string
+// literals are never equal, as strings are compared by reference.
+//
+// Nodes are rebuilt only when something inside them was folded.
+public class ConstantFolder {
+  public List<Stmt> fold(List<Stmt> stmts) {
+    final List<Stmt> res = new ArrayList<>(stmts.size());
+    for (Stmt stmt : stmts) {
+      res.add(this.foldStmt(stmt));
+    }
+    return res;
+  }
+
+  public Stmt foldStmt(Stmt stmt) {
+    return switch (stmt) {
+      case Stmt.PrintStmt p -> {
+        final Expr expr = this.foldExpr(p.expr);
+        yield expr == p.expr ? p : new Stmt.PrintStmt(expr);
+      }
+      case Stmt.ExprStmt e -> this.foldExprStmt(e);
+      case Stmt.ReturnStmt r -> {
+        final Expr expr = this.foldExpr(r.expr);
+        yield expr == r.expr ? r : new Stmt.ReturnStmt(expr);
+      }
+      case Stmt.DeclStmt d -> {
+        final Expr expr = d.expr == null ? null : this.foldExpr(d.expr);
+        yield expr == d.expr ? d : new Stmt.DeclStmt(d.id, expr);
+      }
+      // Branches are statements, not declarations, so dropping one does not
+      // change the identifiers declared in the enclosing scope. A dropped
+      // statement becomes an empty block, which evaluates to nil like the
+      // statement it replaces
+      case Stmt.IfStmt i -> {
+        final Expr cond = this.foldExpr(i.cond);
+        final Stmt thenBranch = this.foldStmt(i.thenBranch);
+        final Stmt elseBranch = i.elseBranch == null ? null : this.foldStmt(i.elseBranch);
+        if (cond instanceof Expr.Literal l) {
+          if (ValueUtils.isTruthy(ValueUtils.literalValue(l.value))) {
+            yield thenBranch;
+          }
+          yield elseBranch != null ? elseBranch : new Stmt.BlockStmt(List.of());
+        }
+        if (cond == i.cond && thenBranch == i.thenBranch && elseBranch == i.elseBranch) {
+          yield i;
+        }
+        yield new Stmt.IfStmt(cond, thenBranch, elseBranch);
+      }
+      case Stmt.WhileStmt w -> {
+        final Expr cond = this.foldExpr(w.cond);
+        if (cond instanceof Expr.Literal l && ValueUtils.isFalsy(ValueUtils.literalValue(l.value))) {
+          yield new Stmt.BlockStmt(List.of());
+        }
+        final Stmt body = this.foldStmt(w.body);
+        yield cond == w.cond && body == w.body ? w : new Stmt.WhileStmt(cond, body);
+      }
+      case Stmt.ForStmt f -> {
+        final Stmt init = this.foldStmt(f.init);
+        final Stmt.ExprStmt cond = this.foldExprStmt(f.cond);
+        final Expr post = this.foldExpr(f.post);
+        final Stmt body = this.foldStmt(f.body);
+        if (init == f.init && cond == f.cond && post == f.post && body == f.body) {
+          yield f;
+        }
+        yield new Stmt.ForStmt(init, cond, post, body);
+      }
+      case Stmt.BlockStmt b -> this.foldBlock(b);
+      case Stmt.FuncStmt f -> this.foldFunction(f);
+      case Stmt.ClsStmt c -> {
+        final List<FuncStmt> methods = new ArrayList<>(c.methods.size());
+        boolean changed = false;
+        for (FuncStmt method : c.methods) {
+          final FuncStmt folded = this.foldFunction(method);
+          changed |= folded != method;
+          methods.add(folded);
+        }
+        yield changed ? new Stmt.ClsStmt(c.name, c.supercls, methods) : c;
+      }
+      default -> throw new Error("Non-exhaustive check");
+    };
+  }
+
+  private Stmt.ExprStmt foldExprStmt(Stmt.ExprStmt stmt) {
+    final Expr expr = this.foldExpr(stmt.expr);
+    return expr == stmt.expr ? stmt : new Stmt.ExprStmt(expr);
+  }
+
+  private Stmt.BlockStmt foldBlock(Stmt.BlockStmt block) {
+    final List<Stmt> stmts = new ArrayList<>(block.stmts.size());
+    boolean changed = false;
+    for (Stmt stmt : block.stmts) {
+      final Stmt folded = this.foldStmt(stmt);
+      changed |= folded != stmt;
+      stmts.add(folded);
+    }
+    return changed ? new Stmt.BlockStmt(stmts) : block;
+  }
+
+  private FuncStmt foldFunction(FuncStmt func) {
+    final Stmt.BlockStmt body = this.foldBlock(func.body);
+    return body == func.body ? func : new FuncStmt(func.name, func.params, body);
+  }
+
+  public Expr foldExpr(Expr expr) {
+    return switch (expr) {
+      case Expr.Grouping g -> this.foldExpr(g.inner);
+      case Expr.Unary u -> {
+        final Expr inner = this.foldExpr(u.inner);
+        if (inner instanceof Expr.Literal l) {
+          final LoxObject value = ValueUtils.literalValue(l.value);
+          if (u.op.type == TokenType.BANG) {
+            yield this.literal(ValueUtils.getLoxBool(ValueUtils.isFalsy(value)), u.op);
+          }
+          if (u.op.type == TokenType.MINUS && value instanceof LoxNumber n) {
+            yield this.literal(LoxNumber.valueOf(-n.value), u.op);
+          }
+        }
+        yield inner == u.inner ? u : new Expr.Unary(u.op, inner);
+      }
+      case Expr.Binary b -> this.foldBinary(b);
+      case Expr.Call c -> {
+        final Expr callee = this.foldExpr(c.callee);
+        final List<Expr> params = this.foldExprs(c.params);
+        yield callee == c.callee && params == c.params ? c : new Expr.Call(callee, params);
+      }
+      case Expr.Get g -> {
+        final Expr object = this.foldExpr(g.object);
+        yield object == g.object ? g : new Expr.Get(object, g.property);
+      }
+      case Expr.Set s -> {
+        final Expr object = this.foldExpr(s.object);
+        final Expr value = this.foldExpr(s.value);
+        yield object == s.object && value == s.value ? s : new Expr.Set(object, s.property, value);
+      }
+      case Expr.SuperCall s -> {
+        final List<Expr> params = this.foldExprs(s.params);
+        yield params == s.params ? s : new Expr.SuperCall(params);
+      }
+      case Expr.Literal l -> l;
+      case Expr.Variable v -> v;
+      case Expr.This t -> t;
+      case Expr.SuperGet s -> s;
+      default -> throw new Error("Non-exhaustive check");
+    };
+  }
+
+  // Return `exprs` itself if nothing was folded
+  private List<Expr> foldExprs(List<Expr> exprs) {
+    final List<Expr> res = new ArrayList<>(exprs.size());
+    boolean changed = false;
+    for (Expr expr : exprs) {
+      final Expr folded = this.foldExpr(expr);
+      changed |= folded != expr;
+      res.add(folded);
+    }
+    return changed ? res : exprs;
+  }
+
+  private Expr foldBinary(Expr.Binary bin) {
+    // The target of an assignment is not an operand
+    final Expr left = bin.op.type == TokenType.EQUAL ? bin.left : this.foldExpr(bin.left);
+    final Expr right = this.foldExpr(bin.right);
+    final Expr unfolded = left == bin.left && right == bin.right ? bin : new Expr.Binary(left, bin.op, right);
+    if (!(left instanceof Expr.Literal l)) {
+      return unfolded;
+    }
+
+    // A literal on the left is enough to decide a logical operator, which then
+    // evaluates to one of its operands
+    final LoxObject leftValue = ValueUtils.literalValue(l.value);
+    if (bin.op.type == TokenType.OR) {
+      return ValueUtils.isTruthy(leftValue) ? left : right;
+    }
+    if (bin.op.type == TokenType.AND) {
+      return ValueUtils.isFalsy(leftValue) ? left : right;
+    }
+    if (!(right instanceof Expr.Literal r)) {
+      return unfolded;
+    }
+
+    final LoxObject rightValue = ValueUtils.literalValue(r.value);
+    if (bin.op.type == TokenType.EQUAL_EQUAL) {
+      return this.literal(ValueUtils.getLoxBool(ValueUtils.equals(leftValue, rightValue)), bin.op);
+    }
+    if (bin.op.type == TokenType.BANG_EQUAL) {
+      return this.literal(ValueUtils.getLoxBool(!ValueUtils.equals(leftValue, rightValue)), bin.op);
+    }
+    if (!(leftValue instanceof LoxNumber ln) || !(rightValue instanceof LoxNumber rn)) {
+      return unfolded;
+    }
+    return switch (bin.op.type) {
+      case TokenType.PLUS -> this.literal(LoxNumber.valueOf(ln.value + rn.value), bin.op);
+      case TokenType.MINUS -> this.literal(LoxNumber.valueOf(ln.value - rn.value), bin.op);
+      case TokenType.STAR -> this.literal(LoxNumber.valueOf(ln.value * rn.value), bin.op);
+      case TokenType.SLASH -> this.literal(LoxNumber.valueOf(ln.value / rn.value), bin.op);
+      case TokenType.LESS -> this.literal(ValueUtils.getLoxBool(ln.value < rn.value), bin.op);
+      case TokenType.LESS_EQUAL -> this.literal(ValueUtils.getLoxBool(ln.value <= rn.value), bin.op);
+      case TokenType.GREATER -> this.literal(ValueUtils.getLoxBool(ln.value > rn.value), bin.op);
+      case TokenType.GREATER_EQUAL -> this.literal(ValueUtils.getLoxBool(ln.value >= rn.value), bin.op);
+      default -> unfolded;
+    };
+  }
+
+  // A literal holding a computed Number or Boolean, located at the operator it
+  // was computed by
+  private Expr.Literal literal(LoxObject value, Token op) {
+    return switch (value) {
+      case LoxNumber n -> new Expr.Literal(
+          new Token(TokenType.NUMBER, String.valueOf(n.value), n.value, op.startOffset, op.endOffset));
+      case LoxBoolean b -> new Expr.Literal(new Token(b.value ? TokenType.TRUE : TokenType.FALSE,
+          String.valueOf(b.value), b.value, op.startOffset, op.endOffset));
+      default -> throw new Error("Unreachable: Unexpected folded value");
+    };
+  }
+}
@@ -1,26 +1,26 @@
 package com.lox;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.lox.object.LoxBoolean;
 import com.lox.object.LoxFunction;
 import com.lox.object.LoxNumber;
 import com.lox.object.LoxObject;
 import com.lox.object.LoxString;
+import com.lox.utils.IntMap;
 
 public class Environment {
   // This is for the sole purpose of creating a global environment
   private Environment() {
     this.parent = null;
     this.globals = this;
-    this.values = new HashMap<>();
+    this.values = new IntMap<>();
+    this.slots = null;
   }
 
   public static Environment createGlobals() throws InterpreterException {
     final Environment globals = new Environment();
-    globals.define("clock", new LoxFunction.LoxForeignFunction("clock") {
+    globals.defineGlobal(Symbol.of("clock"), new LoxFunction.LoxForeignFunction("clock") {
       @Override
       public int arity() {
         return 0;
@@ -32,7 +32,7 @@ public class Environment {
       }
     });
 
-    globals.define("toString", new LoxFunction.LoxForeignFunction("toString") {
+    globals.defineGlobal(Symbol.of("toString"), new LoxFunction.LoxForeignFunction("toString") {
       @Override
       public int arity() {
         return 1;
@@ -44,73 +44,83 @@ public class Environment {
       }
     });
 
-    globals.define("String", LoxString.OBJECT);
-    globals.define("Boolean", LoxBoolean.OBJECT);
-    globals.define("Number", LoxNumber.OBJECT);
-    globals.define("Object", LoxObject.OBJECT);
+    globals.defineGlobal(Symbol.of("String"), LoxString.OBJECT);
+    globals.defineGlobal(Symbol.of("Boolean"), LoxBoolean.OBJECT);
+    globals.defineGlobal(Symbol.of("Number"), LoxNumber.OBJECT);
+    globals.defineGlobal(Symbol.of("Object"), LoxObject.OBJECT);
 
     return globals;
   }
 
   public final Environment parent;
   private final Environment globals;
-  private final Map<String, LoxObject> values;
+  // Globals are looked up by the id of their symbol
+  private final IntMap<LoxObject> values;
+  // Locals are looked up by the slots assigned by the resolver, a `null` slot
+  // means the identifier is declared but its value is not defined yet
+  private final LoxObject[] slots;
 
-  public Environment(Environment parent) {
+  private static final LoxObject[] EMPTY_SLOTS = new LoxObject[0];
+
+  public Environment(Environment parent, int size) {
     this.parent = parent;
     this.globals = this.parent.globals;
-    this.values = new HashMap<>();
+    this.values = null;
+    this.slots = size == 0 ? EMPTY_SLOTS : new LoxObject[size];
   }
 
-  public Environment(Environment parent, Map<String, LoxObject> symbols) {
+  public Environment(Environment parent, LoxObject... slots) {
     this.parent = parent;
     this.globals = this.parent.globals;
-    this.values = symbols;
+    this.values = null;
+    this.slots = slots;
   }
 
-  // Declare that an identifier exists in this environment, but its value is not
-  // defined yet
-  // var x = 3; is equivalent to env.declare("x"); env.assign("x", 3);
-  public void declare(String name) throws InterpreterException {
-    if (values.containsKey(name)) {
-      throw new InterpreterException("Redeclared variable '" + name + "'");
+  public void define(int slot, LoxObject value) {
+    this.slots[slot] = value;
+  }
+
+  public LoxObject getAt(int depth, int slot, String name) throws InterpreterException {
+    final LoxObject value = this.ancestor(depth).slots[slot];
+    if (value == null) {
+      throw new InterpreterException("Variable '" + name + "' used before defined");
     }
-    this.values.put(name, null);
+    return value;
   }
 
-  public void assign(String name, LoxObject value) throws InterpreterException {
-    for (Environment env = this; env != null; env = env.parent) {
-      if (env.values.containsKey(name)) {
-        if (!env.isDefined(name)) {
-          throw new InterpreterException("Variable '" + name + "' used before defined");
-        }
-        env.values.put(name, value);
-        return;
-      }
+  public void assignAt(int depth, int slot, String name, LoxObject value) throws InterpreterException {
+    final Environment env = this.ancestor(depth);
+    if (env.slots[slot] == null) {
+      throw new InterpreterException("Variable '" + name + "' used before defined");
     }
-    throw new InterpreterException("Undefined variable '" + name + "'");
+    env.slots[slot] = value;
   }
 
-  public void define(String name, LoxObject value) throws InterpreterException {
-    if (this.isDefined(name)) {
+  public void defineGlobal(Symbol name, LoxObject value) throws InterpreterException {
+    if (this.globals.values.putIfAbsent(name.id, value) != null) {
       throw new InterpreterException("Redeclared variable '" + name + "'");
     }
-    this.values.put(name, value);
   }
 
-  public LoxObject get(String name) throws InterpreterException {
-    for (Environment env = this; env != null; env = env.parent) {
-      if (env.values.containsKey(name)) {
-        if (!env.isDefined(name)) {
-          throw new InterpreterException("Variable '" + name + "' used before defined");
-        }
-        return env.values.get(name);
-      }
+  public LoxObject getGlobal(Symbol name) throws InterpreterException {
+    final LoxObject value = this.globals.values.get(name.id);
+    if (value == null) {
+      throw new InterpreterException("Undefined variable '" + name + "'");
     }
-    throw new InterpreterException("Undefined variable '" + name + "'");
+    return value;
   }
 
-  public boolean isDefined(String name) {
-    return this.values.containsKey(name) && this.values.get(name) != null;
+  public void assignGlobal(Symbol name, LoxObject value) throws InterpreterException {
+    if (this.globals.values.replace(name.id, value) == null) {
+      throw new InterpreterException("Undefined variable '" + name + "'");
+    }
+  }
+
+  private Environment ancestor(int depth) {
+    Environment env = this;
+    for (int i = 0; i < depth; ++i) {
+      env = env.parent;
+    }
+    return env;
   }
 }
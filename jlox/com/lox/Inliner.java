@@ -0,0 +1,244 @@
+package com.lox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+import com.lox.ast.Stmt.FuncStmt;
+
+// Marks the calls of small functions that the tree walker evaluates without
+// going through a regular call, see `Expr.Call.inlined`. A function is small
+// if its body is a single `return` of an expression made of at most
+// `MAX_INLINED_NODES` literals, variables and operators: it declares nothing,
+// calls nothing, so it is not recursive, and creates no closure, so its
+// parameter scope does not escape.
+//
+// A call is matched with the `fun` declaration its callee variable resolves
+// to, following the same scopes as `Resolver`. The variable may still be
+// assigned another value at runtime: the tree walker checks that the callee
+// is the marked function before every marked call and otherwise calls the
+// callee as usual, so a wrong match is only a missed optimization.
+//
+// Runs on resolved statements, with the inlining decisions reported on
+// stderr if `log` is set.
+public class Inliner {
+  public static final int MAX_INLINED_NODES = 16;
+
+  private final boolean log;
+  // The declarations of the global variables that are functions, across
+  // top-level statements
+  private final Map<Symbol, FuncStmt> globals = new HashMap<>();
+  // The declarations of the enclosing scopes, mapped to null if they're not
+  // functions
+  private final List<Map<Symbol, FuncStmt>> scopes = new ArrayList<>();
+
+  public Inliner(boolean log) {
+    this.log = log;
+  }
+
+  public void inlineStmt(Stmt stmt) {
+    switch (stmt) {
+      case Stmt.FuncStmt f -> this.globals.put(f.name.symbol(), f);
+      case Stmt.DeclStmt d -> this.globals.remove(d.id.symbol());
+      case Stmt.ClsStmt c -> this.globals.remove(c.name.symbol());
+      default -> {}
+    }
+    this.visitStmt(stmt);
+  }
+
+  private void visitStmt(Stmt stmt) {
+    switch (stmt) {
+      case Stmt.PrintStmt p -> this.visitExpr(p.expr);
+      case Stmt.ExprStmt e -> this.visitExpr(e.expr);
+      case Stmt.ReturnStmt r -> this.visitExpr(r.expr);
+      case Stmt.DeclStmt d -> {
+        if (d.expr != null) {
+          this.visitExpr(d.expr);
+        }
+      }
+      case Stmt.IfStmt i -> {
+        this.visitExpr(i.cond);
+        this.visitStmt(i.thenBranch);
+        if (i.elseBranch != null) {
+          this.visitStmt(i.elseBranch);
+        }
+      }
+      case Stmt.WhileStmt w -> {
+        this.visitExpr(w.cond);
+        this.visitStmt(w.body);
+      }
+      case Stmt.ForStmt f -> {
+        final boolean hasScope = f.init instanceof Stmt.DeclStmt;
+        if (hasScope) {
+          this.beginScope().put(((Stmt.DeclStmt) f.init).id.symbol(), null);
+        }
+        this.visitStmt(f.init);
+        this.visitStmt(f.cond);
+        this.visitExpr(f.post);
+        this.visitStmt(f.body);
+        if (hasScope) {
+          this.endScope();
+        }
+      }
+      case Stmt.BlockStmt b -> {
+        // Every declaration of the block is in scope from its start
+        final Map<Symbol, FuncStmt> scope = this.beginScope();
+        for (Stmt s : b.stmts) {
+          switch (s) {
+            case Stmt.FuncStmt f -> scope.putIfAbsent(f.name.symbol(), f);
+            case Stmt.DeclStmt d -> scope.putIfAbsent(d.id.symbol(), null);
+            case Stmt.ClsStmt c -> scope.putIfAbsent(c.name.symbol(), null);
+            default -> {}
+          }
+        }
+        for (Stmt s : b.stmts) {
+          this.visitStmt(s);
+        }
+        this.endScope();
+      }
+      case Stmt.FuncStmt f -> this.visitFunction(f);
+      case Stmt.ClsStmt c -> {
+        for (FuncStmt method : c.methods) {
+          this.visitFunction(method);
+        }
+      }
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  private void visitFunction(FuncStmt func) {
+    final Map<Symbol, FuncStmt> scope = this.beginScope();
+    for (Token param : func.params) {
+      scope.put(param.symbol(), null);
+    }
+    this.visitStmt(func.body);
+    this.endScope();
+  }
+
+  private Map<Symbol, FuncStmt> beginScope() {
+    final Map<Symbol, FuncStmt> scope = new HashMap<>();
+    this.scopes.add(scope);
+    return scope;
+  }
+
+  private void endScope() {
+    this.scopes.remove(this.scopes.size() - 1);
+  }
+
+  // The function declared by the declaration `name` resolves to, null if
+  // it's not a function
+  private FuncStmt lookup(Symbol name) {
+    for (int i = this.scopes.size() - 1; i >= 0; --i) {
+      final Map<Symbol, FuncStmt> scope = this.scopes.get(i);
+      if (scope.containsKey(name)) {
+        return scope.get(name);
+      }
+    }
+    return this.globals.get(name);
+  }
+
+  private void visitExpr(Expr expr) {
+    switch (expr) {
+      case Expr.Binary b -> {
+        this.visitExpr(b.left);
+        this.visitExpr(b.right);
+      }
+      case Expr.Unary u -> this.visitExpr(u.inner);
+      case Expr.Grouping g -> this.visitExpr(g.inner);
+      case Expr.Call c -> {
+        this.visitExpr(c.callee);
+        for (Expr param : c.params) {
+          this.visitExpr(param);
+        }
+        this.inlineCall(c);
+      }
+      case Expr.Get g -> this.visitExpr(g.object);
+      case Expr.Set s -> {
+        this.visitExpr(s.value);
+        this.visitExpr(s.object);
+      }
+      case Expr.SuperCall s -> {
+        for (Expr param : s.params) {
+          this.visitExpr(param);
+        }
+      }
+      case Expr.Literal l -> {}
+      case Expr.Variable v -> {}
+      case Expr.This t -> {}
+      case Expr.SuperGet s -> {}
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  private void inlineCall(Expr.Call call) {
+    call.inlined = null;
+    if (!(call.callee instanceof Expr.Variable v)) {
+      return;
+    }
+    final FuncStmt func = this.lookup(v.var.symbol());
+    if (func == null) {
+      return;
+    }
+    final String reason = this.whyNotInlinable(func, call);
+    if (reason != null) {
+      if (this.log) {
+        System.err.println(String.format("[inline] not inlining call of '%s': %s", func.name.lexeme(), reason));
+      }
+      return;
+    }
+    call.inlined = func;
+    if (this.log) {
+      System.err.println(String.format("[inline] inlining call of '%s': %s", func.name.lexeme(),
+          new PrettyPrinter().printExpr(((Stmt.ReturnStmt) func.body.stmts.get(0)).expr)));
+    }
+  }
+
+  // Return null if `call` can be inlined, assuming that it calls `func`
+  private String whyNotInlinable(FuncStmt func, Expr.Call call) {
+    // Let the call report these errors
+    if (func.params.size() != call.params.size()) {
+      return "wrong number of arguments";
+    }
+    if (func.redeclaredParam != null) {
+      return "redeclared parameter";
+    }
+    if (func.body.stmts.size() != 1 || !(func.body.stmts.get(0) instanceof Stmt.ReturnStmt r)) {
+      return "body is not a single return";
+    }
+    final int size = this.inlinableSize(r.expr);
+    if (size == -1) {
+      return "body is not made of variables & operators only";
+    }
+    if (size > MAX_INLINED_NODES) {
+      return String.format("body has %s nodes, more than %s", size, MAX_INLINED_NODES);
+    }
+    return null;
+  }
+
+  // Return -1 if `expr` is not made of literals, variables and operators only
+  private int inlinableSize(Expr expr) {
+    return switch (expr) {
+      case Expr.Literal l -> 1;
+      case Expr.Variable v -> 1;
+      case Expr.Grouping g -> this.inlinableSize(g.inner);
+      case Expr.Unary u -> {
+        final int inner = this.inlinableSize(u.inner);
+        yield inner == -1 ? -1 : inner + 1;
+      }
+      case Expr.Binary b -> {
+        if (b.op.type == TokenType.EQUAL) {
+          yield -1;
+        }
+        final int left = this.inlinableSize(b.left);
+        final int right = this.inlinableSize(b.right);
+        yield left == -1 || right == -1 ? -1 : left + right + 1;
+      }
+      default -> -1;
+    };
+  }
+}
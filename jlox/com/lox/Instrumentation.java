@@ -0,0 +1,207 @@
+package com.lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.SyntaxNode;
+import com.lox.ast.Stmt.FuncStmt;
+
+// Counts the executions, the time spent and the objects allocated per syntax
+// node, and the calls & time spent per function, for the tree walker.
+//
+// The tree walker enters a node before evaluating it and exits it afterwards,
+// and enters a function around the execution of its body. The time of an
+// execution is the total time of the node, minus the time of the nodes it
+// entered is its self time. The total time of a recursive node or function
+// only counts its outermost executions. An allocation is counted for the node
+// being executed.
+//
+// Functions are counted per declaration, across the closures created from it.
+public class Instrumentation {
+  public enum Allocation {
+    NUMBER("Number"),
+    ENVIRONMENT("Environment"),
+    ARGUMENTS("Arguments"),
+    INSTANCE("Instance"),
+    BOUND_METHOD("BoundMethod"),
+    FUNCTION("Function"),
+    CLASS("Class");
+
+    public final String label;
+
+    Allocation(String label) {
+      this.label = label;
+    }
+  }
+
+  // The number of nodes listed in the report
+  public static final int REPORT_SIZE = 20;
+
+  private static class Stats {
+    final SyntaxNode node;
+    long count = 0;
+    long totalNanos = 0;
+    long selfNanos = 0;
+    // Executions in progress, more than one for recursive ones
+    int active = 0;
+    final long[] allocations = new long[Allocation.values().length];
+
+    Stats(SyntaxNode node) {
+      this.node = node;
+    }
+  }
+
+  private final Map<SyntaxNode, Stats> nodes = new HashMap<>();
+  private final Map<FuncStmt, Stats> functions = new HashMap<>();
+
+  // Executions in progress, with their start time & the total time of the
+  // executions they entered
+  private Stats[] stack = new Stats[64];
+  private long[] starts = new long[64];
+  private long[] childNanos = new long[64];
+  private int depth = 0;
+
+  public void enter(SyntaxNode node) {
+    this.push(this.nodes.computeIfAbsent(node, Stats::new));
+  }
+
+  public void enterFunction(FuncStmt func) {
+    this.push(this.functions.computeIfAbsent(func, Stats::new));
+  }
+
+  // Exit the node or function entered last
+  public void exit() {
+    final long end = System.nanoTime();
+    --this.depth;
+    final Stats stats = this.stack[this.depth];
+    final long elapsed = end - this.starts[this.depth];
+    stats.selfNanos += elapsed - this.childNanos[this.depth];
+    if (--stats.active == 0) {
+      stats.totalNanos += elapsed;
+    }
+    if (this.depth > 0) {
+      this.childNanos[this.depth - 1] += elapsed;
+    }
+  }
+
+  public void allocated(Allocation allocation) {
+    if (this.depth > 0) {
+      this.stack[this.depth - 1].allocations[allocation.ordinal()]++;
+    }
+  }
+
+  // Executions interrupted by a runtime error do not exit, the executions in
+  // progress are dropped before every top-level statement instead
+  public void reset() {
+    for (int i = 0; i < this.depth; ++i) {
+      this.stack[i].active--;
+    }
+    this.depth = 0;
+  }
+
+  private void push(Stats stats) {
+    if (this.depth == this.stack.length) {
+      this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+      this.starts = Arrays.copyOf(this.starts, this.depth * 2);
+      this.childNanos = Arrays.copyOf(this.childNanos, this.depth * 2);
+    }
+    stats.count++;
+    stats.active++;
+    this.stack[this.depth] = stats;
+    this.childNanos[this.depth] = 0;
+    this.starts[this.depth] = System.nanoTime();
+    ++this.depth;
+  }
+
+  // `location` formats a source offset, -1 if the offset of a node is unknown
+  public void writeReport(PrintStream out, IntFunction<String> location) {
+    final List<Stats> nodes = new ArrayList<>(this.nodes.values());
+    nodes.sort(Comparator.comparingLong((Stats s) -> s.selfNanos).reversed());
+    out.println(String.format("== Hot spots by self time (top %s of %s nodes)", Math.min(REPORT_SIZE, nodes.size()),
+        nodes.size()));
+    out.println(String.format("%10s %10s %12s  %-12s %-16s %s", "self ms", "total ms", "count", "location", "node",
+        "allocations"));
+    for (Stats stats : nodes.subList(0, Math.min(REPORT_SIZE, nodes.size()))) {
+      out.println(String.format("%10.1f %10.1f %12d  %-12s %-16s %s", stats.selfNanos / 1e6, stats.totalNanos / 1e6,
+          stats.count, location.apply(offsetOf(stats.node)), typeOf(stats.node),
+          formatAllocations(stats.allocations)));
+    }
+
+    final List<Stats> functions = new ArrayList<>(this.functions.values());
+    functions.sort(Comparator.comparingLong((Stats s) -> s.totalNanos).reversed());
+    out.println("== Functions by total time");
+    out.println(String.format("%10s %10s %12s  %-12s %s", "total ms", "self ms", "calls", "location", "function"));
+    for (Stats stats : functions) {
+      final FuncStmt func = (FuncStmt) stats.node;
+      out.println(String.format("%10.1f %10.1f %12d  %-12s %s", stats.totalNanos / 1e6, stats.selfNanos / 1e6,
+          stats.count, location.apply(func.name.startOffset), func.name.lexeme()));
+    }
+
+    final Map<String, long[]> byType = new LinkedHashMap<>();
+    nodes.sort(Comparator.comparing((Stats s) -> typeOf(s.node)));
+    for (Stats stats : nodes) {
+      final long[] allocations = byType.computeIfAbsent(typeOf(stats.node), t -> new long[Allocation.values().length]);
+      for (int i = 0; i < allocations.length; ++i) {
+        allocations[i] += stats.allocations[i];
+      }
+    }
+    out.println("== Allocations by node type");
+    for (Map.Entry<String, long[]> entry : byType.entrySet()) {
+      final String allocations = formatAllocations(entry.getValue());
+      if (!allocations.isEmpty()) {
+        out.println(String.format("%-16s %s", entry.getKey(), allocations));
+      }
+    }
+  }
+
+  private static String formatAllocations(long[] allocations) {
+    final List<String> res = new ArrayList<>();
+    for (Allocation allocation : Allocation.values()) {
+      if (allocations[allocation.ordinal()] > 0) {
+        res.add(allocation.label + "=" + allocations[allocation.ordinal()]);
+      }
+    }
+    return String.join(" ", res);
+  }
+
+  private static String typeOf(SyntaxNode node) {
+    return (node instanceof Expr ? "Expr." : "Stmt.") + node.getClass().getSimpleName();
+  }
+
+  // The offset of the token that best locates `node`, -1 if it has none
+  private static int offsetOf(SyntaxNode node) {
+    return switch (node) {
+      case Expr.Binary b -> b.op.startOffset;
+      case Expr.Unary u -> u.op.startOffset;
+      case Expr.Literal l -> l.value.startOffset;
+      case Expr.Variable v -> v.var.startOffset;
+      case Expr.Grouping g -> offsetOf(g.inner);
+      case Expr.Call c -> offsetOf(c.callee);
+      case Expr.Get g -> g.property.startOffset;
+      case Expr.Set s -> s.property.startOffset;
+      case Expr.SuperGet s -> s.member.startOffset;
+      case Expr.SuperCall s -> s.params.isEmpty() ? -1 : offsetOf(s.params.get(0));
+      case Expr.This t -> -1;
+      case Stmt.ExprStmt e -> offsetOf(e.expr);
+      case Stmt.PrintStmt p -> offsetOf(p.expr);
+      case Stmt.ReturnStmt r -> offsetOf(r.expr);
+      case Stmt.DeclStmt d -> d.id.startOffset;
+      case Stmt.FuncStmt f -> f.name.startOffset;
+      case Stmt.ClsStmt c -> c.name.startOffset;
+      case Stmt.IfStmt i -> offsetOf(i.cond);
+      case Stmt.WhileStmt w -> offsetOf(w.cond);
+      case Stmt.ForStmt f -> offsetOf(f.init);
+      case Stmt.BlockStmt b -> b.stmts.isEmpty() ? -1 : offsetOf(b.stmts.get(0));
+      default -> throw new Error("Non-exhaustive check");
+    };
+  }
+}
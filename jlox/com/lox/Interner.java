@@ -0,0 +1,77 @@
+package com.lox;
+
+// Interns the names scanned from a source into their `Symbol`, whose name is
+// the String `String.intern` returns, so that names can be compared by
+// identity across sources, e.g. with the lexemes of a cached syntax tree.
+//
+// Names are looked up by their characters in the source, so only the first
+// occurrence of a name allocates a String. The table caches the global table
+// of symbols for one source, without locking. It is an open-addressing hash
+// table using the String hash, kept at most half full.
+class Interner {
+  private Symbol[] table = new Symbol[256];
+  private int size = 0;
+
+  public Symbol intern(CharSequence source, int startOffset, int endOffset) {
+    int hash = 0;
+    for (int i = startOffset; i < endOffset; ++i) {
+      hash = 31 * hash + source.charAt(i);
+    }
+    return this.intern(source, startOffset, endOffset, hash);
+  }
+
+  // `hash` must be the String hash of the name, for scanners that compute it
+  // while scanning the name
+  public Symbol intern(CharSequence source, int startOffset, int endOffset, int hash) {
+    final int mask = this.table.length - 1;
+    for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+      final Symbol symbol = this.table[i];
+      if (symbol == null) {
+        final Symbol res = Symbol.of(source.subSequence(startOffset, endOffset).toString());
+        this.table[i] = res;
+        if (++this.size * 2 > this.table.length) {
+          this.grow();
+        }
+        return res;
+      }
+      if (symbol.name.hashCode() == hash && matches(symbol.name, source, startOffset, endOffset)) {
+        return symbol;
+      }
+    }
+  }
+
+  private void grow() {
+    final Symbol[] old = this.table;
+    this.table = new Symbol[old.length * 2];
+    final int mask = this.table.length - 1;
+    for (Symbol symbol : old) {
+      if (symbol == null) {
+        continue;
+      }
+      int i = spread(symbol.name.hashCode()) & mask;
+      while (this.table[i] != null) {
+        i = (i + 1) & mask;
+      }
+      this.table[i] = symbol;
+    }
+  }
+
+  // Mix the bits of `hash`, as the String hashes of short names are small &
+  // dense, which would make long runs of full slots
+  private static int spread(int hash) {
+    final int h = hash * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean matches(String name, CharSequence source, int startOffset, int endOffset) {
+    if (name.length() != endOffset - startOffset) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); ++i) {
+      if (name.charAt(i) != source.charAt(startOffset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
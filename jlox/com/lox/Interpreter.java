@@ -7,6 +7,7 @@ import java.util.Map;
 
 import com.lox.ast.Expr;
 import com.lox.ast.Stmt;
+import com.lox.ast.Token;
 import com.lox.ast.TokenType;
 import com.lox.ast.Expr.Variable;
 import com.lox.ast.Stmt.FuncStmt;
@@ -18,13 +19,103 @@ import com.lox.object.LoxNumber;
 import com.lox.object.LoxObject;
 import com.lox.object.LoxString;
 import com.lox.utils.Pair;
+import com.lox.vm.VM;
 
 public class Interpreter {
-  public void evaluate(List<Stmt> stmts) throws InterpreterException {
-    Environment env = Environment.createGlobals();
-    for (Stmt stmt : stmts) {
-      this.evaluateStmt(stmt, env);
+  // How resolved statements are executed: by walking the syntax tree, by
+  // compiling them first with `ClosureCompiler`, by compiling them to
+  // bytecode run by `VM`, or by walking the syntax tree until functions get
+  // hot, which are then compiled by `ClosureCompiler`
+  public enum Engine {
+    TREE_WALKER,
+    CLOSURE_COMPILER,
+    BYTECODE_VM,
+    TIERED,
+  }
+
+  // Calls of a function by the tree walker before the tiered engine compiles
+  // it, overridden by the `jlox.tierUpThreshold` system property, or by the
+  // constructor
+  public static final int DEFAULT_TIER_UP_THRESHOLD = 1000;
+
+  private final ConstantFolder folder = new ConstantFolder();
+  private final Resolver resolver = new Resolver();
+  // Set for the tree walker only, the tiered engine compiles hot functions
+  // instead of shortcutting their calls
+  private final Inliner inliner;
+  // At most one of them is set, none if statements are executed by walking
+  // the syntax tree
+  private final ClosureCompiler compiler;
+  private final VM vm;
+  // Set for the tiered engine, see `callUserFunction`
+  private final ClosureCompiler hotTier;
+  private final int tierUpThreshold;
+  // The tier state of the functions called by the tiered engine
+  private final Map<FuncStmt, Tier> tiers = new HashMap<>();
+  // Report tier-ups & demotions on stderr, set by the `jlox.dumpHot`
+  // system property
+  private final boolean dumpHot;
+  // Report inlining decisions & marked calls falling back on stderr, set by
+  // the `jlox.dumpInline` system property
+  private final boolean dumpInline;
+  // Kept up to date with the calls of user functions if set
+  private final Profiler profiler;
+  // Counts the executions of the tree walker if set
+  private final Instrumentation instrumentation;
+
+  // `executeStmt` returns this when a `return` statement is executed, the
+  // enclosing statements stop and pass it up until the enclosing function call
+  // picks up the returned value from `returnValue`
+  private static final LoxObject RETURN_SIGNAL = new LoxObject() {
+    @Override
+    public String toString() {
+      return "<return>";
     }
+
+    @Override
+    public LoxClass cls() {
+      return LoxObject.OBJECT;
+    }
+  };
+  private LoxObject returnValue = null;
+
+  public Interpreter() {
+    this(Engine.TREE_WALKER);
+  }
+
+  public Interpreter(Engine engine) {
+    this(engine, null);
+  }
+
+  public Interpreter(Engine engine, Profiler profiler) {
+    this(engine, profiler, null);
+  }
+
+  public Interpreter(Engine engine, int tierUpThreshold) {
+    this(engine, null, null, tierUpThreshold);
+  }
+
+  // `instrumentation` is only supported by the tree walker
+  public Interpreter(Engine engine, Profiler profiler, Instrumentation instrumentation) {
+    this(engine, profiler, instrumentation,
+        Integer.getInteger("jlox.tierUpThreshold", DEFAULT_TIER_UP_THRESHOLD));
+  }
+
+  private Interpreter(Engine engine, Profiler profiler, Instrumentation instrumentation, int tierUpThreshold) {
+    assert instrumentation == null || engine == Engine.TREE_WALKER;
+    this.profiler = profiler;
+    this.instrumentation = instrumentation;
+    this.compiler = engine == Engine.CLOSURE_COMPILER ? new ClosureCompiler(profiler) : null;
+    this.vm = engine == Engine.BYTECODE_VM ? new VM(profiler) : null;
+    this.hotTier = engine == Engine.TIERED ? new ClosureCompiler(profiler) : null;
+    this.tierUpThreshold = tierUpThreshold;
+    this.dumpHot = Boolean.getBoolean("jlox.dumpHot");
+    this.dumpInline = Boolean.getBoolean("jlox.dumpInline");
+    this.inliner = engine == Engine.TREE_WALKER ? new Inliner(this.dumpInline) : null;
+  }
+
+  public void evaluate(List<Stmt> stmts) throws InterpreterException {
+    this.evaluate(stmts, Environment.createGlobals());
   }
 
   public void evaluate(List<Stmt> stmts, Environment env) throws InterpreterException {
@@ -33,7 +124,50 @@ public class Interpreter {
     }
   }
 
+  // Evaluate a top-level statement in the global environment `env`, after
+  // folding its constants
   public LoxObject evaluateStmt(Stmt stmt, Environment env) throws InterpreterException {
+    if (this.profiler != null) {
+      this.profiler.reset();
+    }
+    if (this.instrumentation != null) {
+      this.instrumentation.reset();
+    }
+    final Stmt folded = this.folder.foldStmt(stmt);
+    this.resolver.resolveStmt(folded);
+    if (this.compiler != null) {
+      return this.compiler.execute(folded, env);
+    }
+    if (this.vm != null) {
+      return this.vm.execute(folded, env);
+    }
+    if (this.inliner != null) {
+      this.inliner.inlineStmt(folded);
+    }
+    final LoxObject res = this.executeStmt(folded, env);
+    if (res == RETURN_SIGNAL) {
+      this.returnValue = null;
+      throw new InterpreterException("Cannot `return` outside a function body");
+    }
+    return res;
+  }
+
+  // Small enough to be inlined by the JVM, the instrumentation is out of line
+  private LoxObject executeStmt(Stmt stmt, Environment env) throws InterpreterException {
+    if (this.instrumentation != null) {
+      return this.executeInstrumented(stmt, env);
+    }
+    return this.dispatchStmt(stmt, env);
+  }
+
+  private LoxObject executeInstrumented(Stmt stmt, Environment env) throws InterpreterException {
+    this.instrumentation.enter(stmt);
+    final LoxObject res = this.dispatchStmt(stmt, env);
+    this.instrumentation.exit();
+    return res;
+  }
+
+  private LoxObject dispatchStmt(Stmt stmt, Environment env) throws InterpreterException {
     return switch (stmt) {
       case Stmt.PrintStmt p -> {
         System.out.println(this.evaluateExpr(p.expr, env).toString());
@@ -41,116 +175,159 @@ public class Interpreter {
       }
       case Stmt.ExprStmt e -> this.evaluateExpr(e.expr, env);
       case Stmt.DeclStmt d -> {
-        env.define(d.id.lexeme, d.expr == null ? LoxNil.NIL : this.evaluateExpr(d.expr, env));
+        final LoxObject value = d.expr == null ? LoxNil.NIL : this.evaluateExpr(d.expr, env);
+        if (d.slot == -1) {
+          env.defineGlobal(d.id.symbol(), value);
+        } else {
+          env.define(d.slot, value);
+        }
         yield LoxNil.NIL;
       }
       case Stmt.IfStmt i -> {
         final LoxObject condValue = this.evaluateExpr(i.cond, env);
         if (ValueUtils.isTruthy(condValue)) {
-          final Environment blockEnv = createScopeEnvironment(env, i.thenBranch);
-          yield this.evaluateStmt(i.thenBranch, blockEnv);
+          yield this.executeStmt(i.thenBranch, env);
         } else {
-          yield i.elseBranch != null ? this.evaluateStmt(i.elseBranch, createScopeEnvironment(env, i.elseBranch))
-              : LoxNil.NIL;
+          yield i.elseBranch != null ? this.executeStmt(i.elseBranch, env) : LoxNil.NIL;
         }
       }
       case Stmt.WhileStmt w -> {
         while (ValueUtils.isTruthy(this.evaluateExpr(w.cond, env))) {
-          final Environment blockEnv = createScopeEnvironment(env, w.body);
-          this.evaluateStmt(w.body, blockEnv);
+          if (this.executeStmt(w.body, env) == RETURN_SIGNAL) {
+            yield RETURN_SIGNAL;
+          }
         }
         yield LoxNil.NIL;
       }
       case Stmt.ForStmt f -> {
-        final Environment initEnv = createScopeEnvironment(env, f.init);
-        this.evaluateStmt(f.init, initEnv);
-        while (ValueUtils.isTruthy(this.evaluateStmt(f.cond, initEnv))) {
-          final Environment blockEnv = createScopeEnvironment(initEnv, f.body);
-          this.evaluateStmt(f.body, blockEnv);
+        final Environment initEnv = f.init instanceof Stmt.DeclStmt ? this.newEnvironment(env, 1) : env;
+        this.executeStmt(f.init, initEnv);
+        while (ValueUtils.isTruthy(this.executeStmt(f.cond, initEnv))) {
+          if (this.executeStmt(f.body, initEnv) == RETURN_SIGNAL) {
+            yield RETURN_SIGNAL;
+          }
           this.evaluateExpr(f.post, initEnv);
         }
         yield LoxNil.NIL;
       }
       case Stmt.BlockStmt b -> {
-        final Environment blockEnv = createScopeEnvironment(env, b);
+        final Environment blockEnv = this.createScopeEnvironment(env, b);
         LoxObject lastValue = LoxNil.NIL;
         for (Stmt s : b.stmts) {
-          lastValue = this.evaluateStmt(s, blockEnv);
+          lastValue = this.executeStmt(s, blockEnv);
+          if (lastValue == RETURN_SIGNAL) {
+            break;
+          }
         }
         yield lastValue;
       }
       case Stmt.FuncStmt f -> {
-        env.define(f.name.lexeme, new LoxFunction.LoxUserFunction(f, env));
+        this.allocated(Instrumentation.Allocation.FUNCTION);
+        final LoxFunction func = new LoxFunction.LoxUserFunction(f, env);
+        if (f.slot == -1) {
+          env.defineGlobal(f.name.symbol(), func);
+        } else {
+          env.define(f.slot, func);
+        }
         yield LoxNil.NIL;
       }
       case Stmt.ReturnStmt r -> {
-        throw new NonLocalJump.Return(this.evaluateExpr(r.expr, env));
+        this.returnValue = this.evaluateExpr(r.expr, env);
+        yield RETURN_SIGNAL;
       }
       case Stmt.ClsStmt c -> {
+        // The class scope is filled in once the class is created
+        final Environment clsEnv = this.newEnvironment(env, 2);
         List<LoxFunction> methods = new ArrayList<>();
         for (FuncStmt func : c.methods) {
-          methods.add(new LoxFunction.LoxUserFunction(func, env));
+          this.allocated(Instrumentation.Allocation.FUNCTION);
+          methods.add(new LoxFunction.LoxUserFunction(func, clsEnv));
         }
+        this.allocated(Instrumentation.Allocation.CLASS);
         LoxClass cls = null;
         if (c.supercls == null) {
-          cls = new LoxClass(c.name.lexeme, methods);
+          cls = new LoxClass(c.name.lexeme(), methods);
         } else {
-          LoxObject supercls = env.get(c.supercls.lexeme);
+          LoxObject supercls = c.superclsDepth == -1 ? env.getGlobal(c.supercls.symbol())
+              : env.getAt(c.superclsDepth, c.superclsSlot, c.supercls.lexeme());
           if (!(supercls instanceof LoxClass)) {
-            throw new InterpreterException(String.format("'%s' is not a class", c.supercls.lexeme));
+            throw new InterpreterException(String.format("'%s' is not a class", c.supercls.lexeme()));
           }
-          cls = new LoxClass(c.name.lexeme, (LoxClass) supercls, methods);
+          cls = new LoxClass(c.name.lexeme(), (LoxClass) supercls, methods);
+        }
+        clsEnv.define(SpecialSymbols.THIS_CLASS_SLOT, cls);
+        clsEnv.define(SpecialSymbols.SUPER_CLASS_SLOT, cls.supercls);
+        if (c.slot == -1) {
+          env.defineGlobal(c.name.symbol(), cls);
+        } else {
+          env.define(c.slot, cls);
         }
-        env.define(c.name.lexeme, cls);
         yield LoxNil.NIL;
       }
       default -> throw new Error("Non-exhaustive check");
     };
   }
 
+  // Same as `executeStmt`
   public LoxObject evaluateExpr(Expr expr, Environment env) throws InterpreterException {
+    if (this.instrumentation != null) {
+      return this.evaluateInstrumented(expr, env);
+    }
+    return this.dispatchExpr(expr, env);
+  }
+
+  private LoxObject evaluateInstrumented(Expr expr, Environment env) throws InterpreterException {
+    this.instrumentation.enter(expr);
+    final LoxObject res = this.dispatchExpr(expr, env);
+    this.instrumentation.exit();
+    return res;
+  }
+
+  private LoxObject dispatchExpr(Expr expr, Environment env) throws InterpreterException {
     return switch (expr) {
       case Expr.Binary b -> this.evaluateBinary(b, env);
       case Expr.Unary u -> this.evaluateUnary(u, env);
       case Expr.Grouping g -> this.evaluateGrouping(g, env);
       case Expr.Variable v -> this.evaluateVariable(v, env);
       case Expr.Literal l -> this.evaluateLiteral(l, env);
-      case Expr.This t -> env.get(SpecialSymbols.THIS_OBJECT);
+      case Expr.This t -> this.lookupThisObject(t.depth, env);
       case Expr.Call c -> {
-        LoxObject callee = this.evaluateExpr(c.callee, env);
-        List<LoxObject> arguments = new ArrayList<>();
-        for (Expr arg : c.params) {
-          arguments.add(this.evaluateExpr(arg, env));
+        if (c.callee instanceof Expr.Get g) {
+          yield this.evaluateInvoke(c, g, env);
         }
-        if (callee instanceof LoxFunction) {
-          yield this.evaluateFunctionCall((LoxFunction) callee, arguments, env);
-        } else if (callee instanceof LoxClass) {
-          yield this.evaluateClassConstructor((LoxClass) callee, arguments, env);
-        } else {
-          throw new InterpreterException("Callee is not of Callable type");
+        if (c.inlined != null) {
+          yield this.evaluateLeafCall(c, env);
         }
+        yield this.evaluateCall(this.evaluateExpr(c.callee, env), c.params, env);
+      }
+      case Expr.Get g -> {
+        final LoxObject value = g.cache.get(this.evaluateExpr(g.object, env), g.property.symbol());
+        if (value instanceof LoxFunction.LoxBoundMethod) {
+          this.allocated(Instrumentation.Allocation.BOUND_METHOD);
+        }
+        yield value;
       }
-      case Expr.Get g -> this.evaluateExpr(g.object, env).get(g.property.lexeme);
       case Expr.Set s -> {
         final LoxObject value = this.evaluateExpr(s.value, env);
-        this.evaluateExpr(s.object, env).set(s.property.lexeme, value);
+        s.cache.set(this.evaluateExpr(s.object, env), s.property.symbol(), value);
         yield value;
       }
       case Expr.SuperGet s -> {
-        final LoxClass superCls = (LoxClass) env.get(SpecialSymbols.SUPER_CLASS);
-        final LoxObject thisObj = env.get(SpecialSymbols.THIS_OBJECT);
+        final LoxClass superCls = (LoxClass) this.lookupSuperClass(s.depth, env);
+        final LoxObject thisObj = this.lookupThisObject(s.depth, env);
 
-        yield thisObj.getMethod(s.member.lexeme, superCls);
+        yield thisObj.getMethod(s.member.symbol(), superCls);
       }
       case Expr.SuperCall s -> {
-        final LoxClass superCls = (LoxClass) env.get(SpecialSymbols.SUPER_CLASS);
-        final LoxObject thisObj = env.get(SpecialSymbols.THIS_OBJECT);
+        final LoxClass superCls = (LoxClass) this.lookupSuperClass(s.depth, env);
+        final LoxObject thisObj = this.lookupThisObject(s.depth, env);
 
+        this.allocated(Instrumentation.Allocation.ARGUMENTS);
         List<LoxObject> arguments = new ArrayList<>();
         for (Expr arg : s.params) {
           arguments.add(this.evaluateExpr(arg, env));
         }
-        final LoxObject constructor = thisObj.getMethod("constructor", superCls);
+        final LoxObject constructor = thisObj.getMethod(SpecialSymbols.CONSTRUCTOR, superCls);
         if (!TypecheckUtils.isNil(constructor)) {
           this.evaluateFunctionCall((LoxFunction) constructor, arguments, env);
         }
@@ -160,21 +337,92 @@ public class Interpreter {
     };
   }
 
+  private LoxObject evaluateCall(LoxObject callee, List<Expr> params, Environment env) throws InterpreterException {
+    this.allocated(Instrumentation.Allocation.ARGUMENTS);
+    List<LoxObject> arguments = new ArrayList<>();
+    for (Expr arg : params) {
+      arguments.add(this.evaluateExpr(arg, env));
+    }
+    if (callee instanceof LoxFunction) {
+      return this.evaluateFunctionCall((LoxFunction) callee, arguments, env);
+    } else if (callee instanceof LoxClass) {
+      return this.evaluateClassConstructor((LoxClass) callee, arguments, env);
+    } else {
+      throw new InterpreterException("Callee is not of Callable type");
+    }
+  }
+
+  // `object.method(args)`: call the method with `object` as the receiver
+  // without creating a bound method. Fields holding functions and foreign
+  // methods are called as usual
+  private LoxObject evaluateInvoke(Expr.Call call, Expr.Get get, Environment env) throws InterpreterException {
+    final LoxObject obj = this.evaluateExpr(get.object, env);
+    final LoxObject method = get.cache.getMethod(obj, get.property.symbol());
+    if (!(method instanceof LoxFunction.LoxUserFunction u)) {
+      final LoxObject callee = method == null ? get.cache.get(obj, get.property.symbol()) : method;
+      return this.evaluateCall(callee, call.params, env);
+    }
+
+    this.allocated(Instrumentation.Allocation.ARGUMENTS);
+    final LoxObject[] slots = new LoxObject[call.params.size() + 1];
+    slots[SpecialSymbols.THIS_OBJECT_SLOT] = obj;
+    for (int i = 0; i < call.params.size(); ++i) {
+      slots[i + 1] = this.evaluateExpr(call.params.get(i), env);
+    }
+    return this.callUserFunction(u, slots, call.params.size());
+  }
+
+  // A call marked by `Inliner` of a leaf function, whose body only returns an
+  // expression. The body is not substituted at the call site: the arguments
+  // still fill a parameter scope, in which the returned expression is
+  // evaluated right away. This skips the arity check, the scope of the body,
+  // the statements and the return signal of a regular call. If the callee is
+  // not the marked function anymore, e.g. its variable was reassigned, the
+  // call site falls back to calling the callee for good
+  private LoxObject evaluateLeafCall(Expr.Call call, Environment env) throws InterpreterException {
+    final LoxObject callee = this.evaluateExpr(call.callee, env);
+    if (!(callee instanceof LoxFunction.LoxUserFunction u) || u.node != call.inlined) {
+      if (this.dumpInline) {
+        System.err.println(String.format("[inline] call of '%s' falls back, the callee is %s",
+            call.inlined.name.lexeme(), callee));
+      }
+      call.inlined = null;
+      return this.evaluateCall(callee, call.params, env);
+    }
+
+    this.allocated(Instrumentation.Allocation.ARGUMENTS);
+    final LoxObject[] slots = new LoxObject[call.params.size()];
+    for (int i = 0; i < slots.length; ++i) {
+      slots[i] = this.evaluateExpr(call.params.get(i), env);
+    }
+    final Stmt.ReturnStmt ret = (Stmt.ReturnStmt) u.node.body.stmts.get(0);
+    this.allocated(Instrumentation.Allocation.ENVIRONMENT);
+    final Environment paramEnv = new Environment(u.env(), slots);
+    if (this.profiler == null && this.instrumentation == null) {
+      return this.evaluateExpr(ret.expr, paramEnv);
+    }
+    if (this.profiler != null) {
+      this.profiler.enter(u.node);
+    }
+    if (this.instrumentation != null) {
+      this.instrumentation.enterFunction(u.node);
+    }
+    final LoxObject res = this.evaluateExpr(ret.expr, paramEnv);
+    if (this.instrumentation != null) {
+      this.instrumentation.exit();
+    }
+    if (this.profiler != null) {
+      this.profiler.exit();
+    }
+    return res;
+  }
+
   private LoxObject evaluateClassConstructor(LoxClass kls, List<LoxObject> args, Environment env)
       throws InterpreterException {
-    final LoxObject blankObj = new LoxObject() {
-      @Override
-      public String toString() {
-        return String.format("<instance %s>", this.cls().name);
-      }
+    this.allocated(Instrumentation.Allocation.INSTANCE);
+    final LoxObject blankObj = kls.instantiate();
 
-      @Override
-      public LoxClass cls() {
-        return kls;
-      }
-    };
-
-    final LoxObject res = blankObj.getMethod("constructor");
+    final LoxObject res = blankObj.getMethod(SpecialSymbols.CONSTRUCTOR);
     if (res == LoxNil.NIL) {
       if (args.size() > 0) {
         throw new InterpreterException(String.format("Expected %s argument(s) but got %s", 0, args.size()));
@@ -190,29 +438,117 @@ public class Interpreter {
   private LoxObject evaluateFunctionCall(LoxFunction callee, List<LoxObject> args, Environment env)
       throws InterpreterException {
     return switch (callee) {
-      case LoxFunction.LoxUserFunction u -> this.evaluateUserFunction(u, args, env);
+      case LoxFunction.LoxUserFunction u -> this.evaluateUserFunction(u, null, args, env);
+      case LoxFunction.LoxBoundMethod b -> this.evaluateUserFunction(b.method, b.receiver, args, env);
       case LoxFunction.LoxForeignFunction f -> this.evaluateForeignFunction(f, args, env);
       default -> throw new Error("Unhandled LoxFunction subclass");
     };
   }
 
-  private LoxObject evaluateUserFunction(LoxFunction.LoxUserFunction func, List<LoxObject> args, Environment env)
+  // `receiver` is the object bound to `this` if `func` is a method, null
+  // otherwise
+  private LoxObject evaluateUserFunction(LoxFunction.LoxUserFunction func, LoxObject receiver, List<LoxObject> args,
+      Environment env) throws InterpreterException {
+    if (receiver == null) {
+      this.allocated(Instrumentation.Allocation.ARGUMENTS);
+      return this.callUserFunction(func, args.toArray(new LoxObject[args.size()]), args.size());
+    }
+    this.allocated(Instrumentation.Allocation.ARGUMENTS);
+    final LoxObject[] slots = new LoxObject[args.size() + 1];
+    slots[SpecialSymbols.THIS_OBJECT_SLOT] = receiver;
+    for (int i = 0; i < args.size(); ++i) {
+      slots[i + 1] = args.get(i);
+    }
+    return this.callUserFunction(func, slots, args.size());
+  }
+
+  // `slots` are the initial values of the parameter scope: the receiver if
+  // `func` is a method followed by the `argCount` arguments
+  private LoxObject callUserFunction(LoxFunction.LoxUserFunction func, LoxObject[] slots, int argCount)
       throws InterpreterException {
-    if (func.arity() != args.size()) {
-      throw new InterpreterException(String.format("Expected %s argument(s) but got %s", func.arity(), args.size()));
+    if (func.arity() != argCount) {
+      throw new InterpreterException(String.format("Expected %s argument(s) but got %s", func.arity(), argCount));
     }
 
-    try {
-      final Environment initEnv = new Environment(func.env());
-      for (int i = 0; i < func.node.params.size(); ++i) {
-        initEnv.define(func.node.params.get(i).lexeme, args.get(i));
+    if (func.node.redeclaredParam != null) {
+      throw new InterpreterException("Redeclared variable '" + func.node.redeclaredParam + "'");
+    }
+
+    if (this.hotTier != null) {
+      Tier tier = this.tiers.get(func.node);
+      if (tier == null) {
+        tier = new Tier();
+        this.tiers.put(func.node, tier);
+      }
+      if (!tier.demoted && ++tier.callCount >= this.tierUpThreshold) {
+        return this.callHotFunction(func, tier, slots, argCount);
       }
-      final Environment bodyEnv = createScopeEnvironment(initEnv, func.node.body);
-      this.evaluate(func.node.body.stmts, bodyEnv);
-      return LoxNil.NIL;
-    } catch (NonLocalJump.Return r) {
-      return r.value;
     }
+
+    if (this.profiler != null) {
+      this.profiler.enter(func.node);
+    }
+    this.allocated(Instrumentation.Allocation.ENVIRONMENT);
+    final Environment initEnv = new Environment(func.env(), slots);
+    final Environment bodyEnv = this.createScopeEnvironment(initEnv, func.node.body);
+    if (this.instrumentation != null) {
+      this.instrumentation.enterFunction(func.node);
+    }
+    LoxObject value = LoxNil.NIL;
+    for (Stmt stmt : func.node.body.stmts) {
+      if (this.executeStmt(stmt, bodyEnv) == RETURN_SIGNAL) {
+        value = this.returnValue;
+        this.returnValue = null;
+        break;
+      }
+    }
+    if (this.instrumentation != null) {
+      this.instrumentation.exit();
+    }
+    if (this.profiler != null) {
+      this.profiler.exit();
+    }
+    return value;
+  }
+
+  // Run a hot function with the closure compiler, which compiles it upon the
+  // first call. The compiled code makes the same checks as the tree walker,
+  // so a runtime error of the compiled code is the one the tree walker would
+  // have raised at the same point and is reported as is: the failing call is
+  // not resumed nor run again. The function is demoted though, the tree
+  // walker runs its later calls
+  private LoxObject callHotFunction(LoxFunction.LoxUserFunction func, Tier tier, LoxObject[] slots, int argCount)
+      throws InterpreterException {
+    if (this.dumpHot && !this.hotTier.isCompiled(func.node)) {
+      System.err.println(String.format("[tier-up] %s after %s calls: %s", func, tier.callCount,
+          new PrettyPrinter().printStmt(func.node)));
+    }
+    try {
+      return this.hotTier.call(func, slots, argCount);
+    } catch (InterpreterException e) {
+      tier.demoted = true;
+      this.hotTier.discard(func.node);
+      if (this.dumpHot) {
+        System.err.println(String.format("[demote] %s: %s", func, e.message));
+      }
+      throw e;
+    }
+  }
+
+  boolean isCompiled(FuncStmt func) {
+    return this.hotTier != null && this.hotTier.isCompiled(func);
+  }
+
+  boolean isDemoted(FuncStmt func) {
+    final Tier tier = this.tiers.get(func);
+    return tier != null && tier.demoted;
+  }
+
+  // Calls by the tree walker of a function of the tiered engine, it's compiled
+  // once it's hot unless it was demoted
+  private static class Tier {
+    int callCount = 0;
+    boolean demoted = false;
   }
 
   private LoxObject evaluateForeignFunction(LoxFunction.LoxForeignFunction func, List<LoxObject> args, Environment env)
@@ -227,7 +563,12 @@ public class Interpreter {
   private LoxObject evaluateBinary(Expr.Binary bin, Environment env) throws InterpreterException {
     if (bin.op.type == TokenType.EQUAL) {
       final LoxObject right = this.evaluateExpr(bin.right, env);
-      env.assign(((Variable) bin.left).var.lexeme, right);
+      final Variable var = (Variable) bin.left;
+      if (var.depth == -1) {
+        env.assignGlobal(var.var.symbol(), right);
+      } else {
+        env.assignAt(var.depth, var.slot, var.var.lexeme(), right);
+      }
       return right;
     }
     if (bin.op.type == TokenType.OR) {
@@ -246,211 +587,192 @@ public class Interpreter {
       final LoxObject right = this.evaluateExpr(bin.right, env);
       return right;
     }
-    final LoxObject left = this.evaluateExpr(bin.left, env);
-    final LoxObject right = this.evaluateExpr(bin.right, env);
     return switch (bin.op.type) {
-      case TokenType.PLUS -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '+' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield new LoxNumber(((LoxNumber) left).value + ((LoxNumber) right).value);
-      }
-      case TokenType.MINUS -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '-' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield new LoxNumber(((LoxNumber) left).value - ((LoxNumber) right).value);
-      }
-      case TokenType.STAR -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '*' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield new LoxNumber(((LoxNumber) left).value * ((LoxNumber) right).value);
-      }
-      case TokenType.SLASH -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '/' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield new LoxNumber(((LoxNumber) left).value / ((LoxNumber) right).value);
-      }
+      case TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.SLASH ->
+        this.box(this.evaluateDouble(bin, env));
+      case TokenType.LESS, TokenType.LESS_EQUAL, TokenType.GREATER, TokenType.GREATER_EQUAL ->
+        ValueUtils.getLoxBool(this.evaluateComparison(bin, env));
       case TokenType.EQUAL_EQUAL -> {
+        final LoxObject left = this.evaluateExpr(bin.left, env);
+        final LoxObject right = this.evaluateExpr(bin.right, env);
         if (!TypecheckUtils.isSameType(left, right)) {
           yield ValueUtils.getLoxBool(false);
         }
         yield ValueUtils.getLoxBool(ValueUtils.equals(left, right));
       }
       case TokenType.BANG_EQUAL -> {
+        final LoxObject left = this.evaluateExpr(bin.left, env);
+        final LoxObject right = this.evaluateExpr(bin.right, env);
         if (!TypecheckUtils.isSameType(left, right)) {
           yield ValueUtils.getLoxBool(true);
         }
         yield ValueUtils.getLoxBool(!ValueUtils.equals(left, right));
       }
-      case TokenType.LESS -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '<' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield ValueUtils.getLoxBool(((LoxNumber) left).value < ((LoxNumber) right).value);
-      }
-      case TokenType.LESS_EQUAL -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '<=' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield ValueUtils.getLoxBool(((LoxNumber) left).value <= ((LoxNumber) right).value);
-      }
-      case TokenType.GREATER -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '>' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield ValueUtils.getLoxBool(((LoxNumber) left).value > ((LoxNumber) right).value);
-      }
-      case TokenType.GREATER_EQUAL -> {
-        if (!TypecheckUtils.isNumber(left) || !TypecheckUtils.isNumber(right)) {
-          throw new InterpreterException(String.format("Unsupported operator '>=' on %s and %s",
-              TypecheckUtils.typenameOf(left), TypecheckUtils.typenameOf(right)));
-        }
-        yield ValueUtils.getLoxBool(((LoxNumber) left).value >= ((LoxNumber) right).value);
-      }
-      default -> throw new Error(String.format("Unreachable: Unexpected binary operator '%s'", bin.op.lexeme));
+      default -> throw new Error(String.format("Unreachable: Unexpected binary operator '%s'", bin.op.lexeme()));
     };
   }
 
-  private LoxObject evaluateUnary(Expr.Unary un, Environment env) throws InterpreterException {
-    final LoxObject inner = this.evaluateExpr(un.inner, env);
-    return switch (un.op.type) {
-      case TokenType.BANG -> {
-        yield ValueUtils.getLoxBool(ValueUtils.isFalsy(inner));
-      }
-      case TokenType.MINUS -> {
+  // Evaluate a numeric expression (see `Resolver`) without boxing the
+  // intermediate results, only the final result is boxed by the caller.
+  // Non-numeric operands are evaluated as usual and must turn out to be
+  // Numbers
+  private double evaluateDouble(Expr expr, Environment env) throws InterpreterException {
+    return switch (expr) {
+      case Expr.Literal l -> ((LoxNumber) this.evaluateLiteral(l, env)).value;
+      case Expr.Grouping g -> this.evaluateDoubleOperand(g.inner, env);
+      case Expr.Unary u -> {
+        if (u.inner.numeric) {
+          yield -this.evaluateDoubleOperand(u.inner, env);
+        }
+        final LoxObject inner = this.evaluateExpr(u.inner, env);
         if (!TypecheckUtils.isNumber(inner)) {
           throw new InterpreterException(
               String.format("Unsupported operator '-' on %s", TypecheckUtils.typenameOf(inner)));
         }
-        yield new LoxNumber(-((LoxNumber) inner).value);
-      }
-      default -> throw new Error(String.format("Unreachable: Unexpected unary operator '%s'", un.op.lexeme));
+        yield -((LoxNumber) inner).value;
+      }
+      case Expr.Binary b -> {
+        // A null object means the operand was evaluated unboxed
+        final LoxObject leftObj = b.left.numeric ? null : this.evaluateExpr(b.left, env);
+        final double leftValue = leftObj == null ? this.evaluateDoubleOperand(b.left, env) : 0;
+        final LoxObject rightObj = b.right.numeric ? null : this.evaluateExpr(b.right, env);
+        final double rightValue = rightObj == null ? this.evaluateDoubleOperand(b.right, env) : 0;
+        this.checkNumberOperands(b.op, leftObj, rightObj);
+        final double left = leftObj == null ? leftValue : ((LoxNumber) leftObj).value;
+        final double right = rightObj == null ? rightValue : ((LoxNumber) rightObj).value;
+        yield switch (b.op.type) {
+          case TokenType.PLUS -> left + right;
+          case TokenType.MINUS -> left - right;
+          case TokenType.STAR -> left * right;
+          case TokenType.SLASH -> left / right;
+          default -> throw new Error(String.format("Unreachable: Unexpected numeric operator '%s'", b.op.lexeme()));
+        };
+      }
+      default -> throw new Error("Unreachable: Unexpected numeric expression");
     };
   }
 
-  private LoxObject evaluateGrouping(Expr.Grouping gr, Environment env) throws InterpreterException {
-    return this.evaluateExpr(gr.inner, env);
+  // An operand evaluated unboxed is still a node of its own for the
+  // instrumentation
+  private double evaluateDoubleOperand(Expr expr, Environment env) throws InterpreterException {
+    if (this.instrumentation != null) {
+      return this.evaluateDoubleInstrumented(expr, env);
+    }
+    return this.evaluateDouble(expr, env);
   }
 
-  private LoxObject evaluateLiteral(Expr.Literal lit, Environment env) {
-    if (lit.value.literal == null) {
-      return LoxNil.NIL;
-    }
-    return switch (lit.value.literal) {
-      case Double d -> new LoxNumber(d);
-      case String s -> new LoxString(s);
-      case Boolean b -> ValueUtils.getLoxBool(b);
-      default -> throw new Error(String.format("Unreachable: Unexpected literal type"));
-    };
+  private double evaluateDoubleInstrumented(Expr expr, Environment env) throws InterpreterException {
+    this.instrumentation.enter(expr);
+    final double res = this.evaluateDouble(expr, env);
+    this.instrumentation.exit();
+    return res;
   }
 
-  private LoxObject evaluateVariable(Expr.Variable var, Environment env) throws InterpreterException {
-    return env.get(var.var.lexeme);
+  private boolean evaluateComparison(Expr.Binary bin, Environment env) throws InterpreterException {
+    // A null object means the operand was evaluated unboxed
+    final LoxObject leftObj = bin.left.numeric ? null : this.evaluateExpr(bin.left, env);
+    final double leftValue = leftObj == null ? this.evaluateDoubleOperand(bin.left, env) : 0;
+    final LoxObject rightObj = bin.right.numeric ? null : this.evaluateExpr(bin.right, env);
+    final double rightValue = rightObj == null ? this.evaluateDoubleOperand(bin.right, env) : 0;
+    this.checkNumberOperands(bin.op, leftObj, rightObj);
+    final double left = leftObj == null ? leftValue : ((LoxNumber) leftObj).value;
+    final double right = rightObj == null ? rightValue : ((LoxNumber) rightObj).value;
+    return switch (bin.op.type) {
+      case TokenType.LESS -> left < right;
+      case TokenType.LESS_EQUAL -> left <= right;
+      case TokenType.GREATER -> left > right;
+      case TokenType.GREATER_EQUAL -> left >= right;
+      default -> throw new Error(String.format("Unreachable: Unexpected comparison operator '%s'", bin.op.lexeme()));
+    };
   }
 
-  private Environment createScopeEnvironment(Environment parent, Stmt stmt) throws InterpreterException {
-    final Environment env = new Environment(parent);
-    if (stmt instanceof Stmt.BlockStmt) {
-      final Stmt.BlockStmt block = (Stmt.BlockStmt) stmt;
-      for (Stmt bstmt : block.stmts) {
-        switch (bstmt) {
-          case Stmt.DeclStmt d -> {
-            env.declare(d.id.lexeme);
-          }
-          case Stmt.FuncStmt f -> {
-            env.declare(f.name.lexeme);
-          }
-          case Stmt.ClsStmt c -> {
-            env.declare(c.name.lexeme);
-          }
-          default -> {
-          }
-        }
-      }
-    } else if (stmt instanceof Stmt.FuncStmt) {
-      env.declare(((Stmt.FuncStmt) stmt).name.lexeme);
-    } else if (stmt instanceof Stmt.DeclStmt) {
-      env.declare(((Stmt.DeclStmt) stmt).id.lexeme);
-    } else if (stmt instanceof Stmt.ClsStmt) {
-      env.declare(((Stmt.FuncStmt) stmt).name.lexeme);
+  // A null operand is a Number that was evaluated unboxed
+  private void checkNumberOperands(Token op, LoxObject left, LoxObject right) throws InterpreterException {
+    if ((left != null && !TypecheckUtils.isNumber(left)) || (right != null && !TypecheckUtils.isNumber(right))) {
+      throw new InterpreterException(String.format("Unsupported operator '%s' on %s and %s", op.lexeme(),
+          left == null ? LoxNumber.OBJECT.name : TypecheckUtils.typenameOf(left),
+          right == null ? LoxNumber.OBJECT.name : TypecheckUtils.typenameOf(right)));
     }
-    return env;
-  }
-}
-
-class TypecheckUtils {
-  public static boolean isNumber(LoxObject obj) {
-    return obj.instanceOf(LoxNumber.OBJECT);
   }
 
-  public static boolean isString(LoxObject obj) {
-    return obj.instanceOf(LoxString.OBJECT);
+  private LoxObject evaluateUnary(Expr.Unary un, Environment env) throws InterpreterException {
+    return switch (un.op.type) {
+      case TokenType.BANG -> {
+        yield ValueUtils.getLoxBool(ValueUtils.isFalsy(this.evaluateExpr(un.inner, env)));
+      }
+      case TokenType.MINUS -> this.box(this.evaluateDouble(un, env));
+      default -> throw new Error(String.format("Unreachable: Unexpected unary operator '%s'", un.op.lexeme()));
+    };
   }
 
-  public static boolean isBoolean(LoxObject obj) {
-    return obj.instanceOf(LoxBoolean.OBJECT);
+  private LoxObject evaluateGrouping(Expr.Grouping gr, Environment env) throws InterpreterException {
+    return this.evaluateExpr(gr.inner, env);
   }
 
-  public static boolean isNil(LoxObject obj) {
-    return obj.instanceOf(LoxNil.OBJECT);
+  // Literal values are immutable, so they are created once per literal and
+  // reused on every evaluation
+  private LoxObject evaluateLiteral(Expr.Literal lit, Environment env) {
+    if (lit.constant == null) {
+      lit.constant = ValueUtils.literalValue(lit.value);
+    }
+    return lit.constant;
   }
 
-  public static boolean isCallable(LoxObject obj) {
-    return obj.instanceOf(LoxFunction.OBJECT) || obj.instanceOf(LoxClass.OBJECT);
+  private LoxObject evaluateVariable(Expr.Variable var, Environment env) throws InterpreterException {
+    if (var.depth == -1) {
+      return env.getGlobal(var.var.symbol());
+    }
+    return env.getAt(var.depth, var.slot, var.var.lexeme());
   }
 
-  public static boolean isSameType(LoxObject obj1, LoxObject obj2) {
-    return obj1.cls() == obj2.cls();
+  // `depth` is the depth of the parameter scope of the enclosing method, which
+  // holds `this`, `super` lives right above it in the class scope
+  private LoxObject lookupThisObject(int depth, Environment env) throws InterpreterException {
+    if (depth == -1) {
+      return env.getGlobal(SpecialSymbols.THIS_OBJECT);
+    }
+    return env.getAt(depth, SpecialSymbols.THIS_OBJECT_SLOT, SpecialSymbols.THIS_OBJECT.name);
   }
 
-  public static String typenameOf(LoxObject obj) {
-    return obj.cls().name;
+  private LoxObject lookupSuperClass(int depth, Environment env) throws InterpreterException {
+    if (depth == -1) {
+      return env.getGlobal(SpecialSymbols.SUPER_CLASS);
+    }
+    return env.getAt(depth + 1, SpecialSymbols.SUPER_CLASS_SLOT, SpecialSymbols.SUPER_CLASS.name);
   }
-}
 
-class ValueUtils {
-  public static boolean isFalsy(LoxObject obj) {
-    if (TypecheckUtils.isBoolean(obj)) {
-      return !((LoxBoolean) obj).value;
+  // The scope size is computed by the resolver, which declares the same
+  // identifiers. Blocks that declare nothing are evaluated in the enclosing
+  // environment
+  private Environment createScopeEnvironment(Environment parent, Stmt.BlockStmt block)
+      throws InterpreterException {
+    if (block.redeclared != null) {
+      throw new InterpreterException("Redeclared variable '" + block.redeclared + "'");
+    }
+    if (block.scopeSize == 0) {
+      return parent;
     }
-    return TypecheckUtils.isNil(obj);
+    return this.newEnvironment(parent, block.scopeSize);
   }
 
-  public static boolean isTruthy(LoxObject obj) {
-    return !ValueUtils.isFalsy(obj);
+  private Environment newEnvironment(Environment parent, int size) {
+    this.allocated(Instrumentation.Allocation.ENVIRONMENT);
+    return new Environment(parent, size);
   }
 
-  public static LoxBoolean getLoxBool(boolean b) {
-    return b ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+  // Box the result of a numeric expression
+  private LoxNumber box(double value) {
+    final LoxNumber res = LoxNumber.valueOf(value);
+    if (this.instrumentation != null && !LoxNumber.isShared(res)) {
+      this.instrumentation.allocated(Instrumentation.Allocation.NUMBER);
+    }
+    return res;
   }
 
-  public static boolean equals(LoxObject o1, LoxObject o2) {
-    if (!TypecheckUtils.isSameType(o1, o2)) {
-      return false;
-    }
-    if (TypecheckUtils.isNumber(o1)) {
-      return ((LoxNumber) o1).value == ((LoxNumber) o2).value;
-    }
-    if (TypecheckUtils.isNil(o1)) {
-      return true;
-    }
-    if (TypecheckUtils.isBoolean(o1)) {
-      return ((LoxBoolean) o1).value == ((LoxBoolean) o2).value;
-    }
-    if (TypecheckUtils.isString(o1)) {
-      return ((LoxString) o1).value == ((LoxString) o2).value;
+  private void allocated(Instrumentation.Allocation allocation) {
+    if (this.instrumentation != null) {
+      this.instrumentation.allocated(allocation);
     }
-    return o1 == o2;
   }
 }
 
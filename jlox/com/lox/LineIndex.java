@@ -0,0 +1,38 @@
+package com.lox;
+
+import java.util.Arrays;
+
+// The offsets at which the lines of a source start, found in a single pass so
+// that the position of any offset is a binary search away rather than a scan
+// of the source up to it. Lines & columns start at 1
+public class LineIndex {
+  private int[] lineStarts = new int[64];
+  private int lineCount = 0;
+
+  public LineIndex(CharSequence source) {
+    this.add(0);
+    final int length = source.length();
+    for (int i = 0; i < length; ++i) {
+      if (source.charAt(i) == '\n') {
+        this.add(i + 1);
+      }
+    }
+  }
+
+  public int lineOf(int offset) {
+    final int index = Arrays.binarySearch(this.lineStarts, 0, this.lineCount, offset);
+    // Otherwise the number of lines starting before `offset`
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  public int columnOf(int offset) {
+    return offset - this.lineStarts[this.lineOf(offset) - 1] + 1;
+  }
+
+  private void add(int lineStart) {
+    if (this.lineCount == this.lineStarts.length) {
+      this.lineStarts = Arrays.copyOf(this.lineStarts, this.lineCount * 2);
+    }
+    this.lineStarts[this.lineCount++] = lineStart;
+  }
+}
@@ -1,7 +1,9 @@
 package com.lox;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.lox.ast.Expr;
 import com.lox.ast.Stmt;
@@ -21,20 +23,33 @@ import com.lox.ast.Stmt.WhileStmt;
 import com.lox.utils.Pair;
 
 public class Parser {
-  private final List<Token> tokens;
-  private int currentOffset = 0;
+  // Pulls the next token, null if there is none left. The parser only needs
+  // the current & the previous tokens, so the token stream is never held in
+  // full
+  private final Supplier<Token> tokens;
+  private Token previous = null;
+  private Token current;
   private List<Stmt> stmts = new ArrayList<Stmt>();
   private List<ParserException> errors = new ArrayList<>();
 
   public Parser(List<Token> tokens) {
-    this.tokens = tokens;
+    final Iterator<Token> it = tokens.iterator();
+    this.tokens = () -> it.hasNext() ? it.next() : null;
+    this.current = this.tokens.get();
+  }
+
+  // Parse the tokens as `scanner` scans them, the scanner errors are left in
+  // `scanner.errors()`
+  public Parser(Scanner scanner) {
+    this.tokens = scanner::nextToken;
+    this.current = this.tokens.get();
   }
 
   public Pair<List<Stmt>, List<ParserException>> parse() {
     if (this.isAtEnd())
       return new Pair<>(this.stmts, this.errors);
 
-    assert this.currentOffset == 0;
+    assert this.previous == null;
 
     while (!this.isAtEnd() && !this.match(TokenType.EOF)) {
       try {
@@ -47,14 +62,22 @@ public class Parser {
   }
 
   private boolean isAtEnd() {
-    return this.currentOffset == tokens.size();
+    return this.current == null;
+  }
+
+  // Nothing follows the EOF token
+  private void advance() {
+    assert !this.isAtEnd();
+
+    this.previous = this.current;
+    this.current = this.previous.type == TokenType.EOF ? null : this.tokens.get();
   }
 
   private void synchronizeStatementOrBlock() {
     assert !this.isAtEnd();
 
     while (!this.dryMatch(TokenType.EOF) && !this.match(TokenType.SEMICOLON, TokenType.RIGHT_BRACE)) {
-      this.currentOffset += 1;
+      this.advance();
     }
   }
 
@@ -62,7 +85,7 @@ public class Parser {
     assert !this.isAtEnd();
 
     while (!this.dryMatch(TokenType.EOF) && !this.match(TokenType.EOF, TokenType.SEMICOLON)) {
-      this.currentOffset += 1;
+      this.advance();
     }
   }
 
@@ -70,7 +93,7 @@ public class Parser {
     assert !this.isAtEnd();
 
     while (!this.dryMatch(TokenType.EOF) && !this.match(TokenType.RIGHT_BRACE)) {
-      this.currentOffset += 1;
+      this.advance();
     }
   }
 
@@ -641,7 +664,7 @@ public class Parser {
     assert !this.isAtEnd();
 
     while (!this.dryMatch(TokenType.EOF, TokenType.RIGHT_PAREN, TokenType.RIGHT_BRACE, TokenType.SEMICOLON)) {
-      this.currentOffset += 1;
+      this.advance();
     }
 
     if (this.dryMatch(TokenType.EOF) || !this.match(TokenType.RIGHT_PAREN)) {
@@ -698,22 +721,22 @@ public class Parser {
   }
 
   private Token previous() {
-    assert this.currentOffset <= this.tokens.size();
+    assert this.previous != null;
 
-    return this.tokens.get(this.currentOffset - 1);
+    return this.previous;
   }
 
   private Token current() {
     assert !this.isAtEnd();
 
-    return this.tokens.get(this.currentOffset);
+    return this.current;
   }
 
   // Match without advancing the current offset
   private boolean dryMatch(TokenType... types) {
     assert !this.isAtEnd();
 
-    final TokenType currentType = this.tokens.get(this.currentOffset).type;
+    final TokenType currentType = this.current.type;
     for (TokenType type : types) {
       if (type.equals(currentType)) {
         return true;
@@ -726,10 +749,10 @@ public class Parser {
     if (this.isAtEnd())
       return false;
 
-    final TokenType currentType = this.tokens.get(this.currentOffset).type;
+    final TokenType currentType = this.current.type;
     for (TokenType type : types) {
       if (type.equals(currentType)) {
-        this.currentOffset += 1;
+        this.advance();
         return true;
       }
     }
@@ -18,7 +18,7 @@ public class PrettyPrinter {
 
   public String printStmt(Stmt stmt) {
     return switch (stmt) {
-      case Stmt.DeclStmt d -> d.expr == null ? String.format("(define %s)", d.id.lexeme) : String.format("(define %s %s)", d.id.lexeme, this.printExpr(d.expr));
+      case Stmt.DeclStmt d -> d.expr == null ? String.format("(define %s)", d.id.lexeme()) : String.format("(define %s %s)", d.id.lexeme(), this.printExpr(d.expr));
       case Stmt.ExprStmt e -> this.printExpr(e.expr);
       case Stmt.PrintStmt p -> String.format("(print %s)", this.printExpr(p.expr));
       case Stmt.IfStmt i -> {
@@ -44,9 +44,9 @@ public class PrettyPrinter {
       }
       case Stmt.FuncStmt f -> {
         String res = "(fun (";
-        res += f.name.lexeme;
+        res += f.name.lexeme();
         for (Token param: f.params) {
-          res += " " + param.lexeme;
+          res += " " + param.lexeme();
         }
         res += ") ";
         res += this.printStmt(f.body);
@@ -56,7 +56,7 @@ public class PrettyPrinter {
       case Stmt.ReturnStmt r -> String.format("(return %s)", this.printExpr(r.expr));
       case Stmt.ClsStmt c -> {
         String res = "(class (";
-        res += c.supercls == null ? c.name.lexeme + ")" : "< " + c.name.lexeme + " " + c.supercls.lexeme + ")";
+        res += c.supercls == null ? c.name.lexeme() + ")" : "< " + c.name.lexeme() + " " + c.supercls.lexeme() + ")";
         for (FuncStmt method: c.methods) {
           res += " " + this.printStmt(method);
         }
@@ -69,12 +69,12 @@ public class PrettyPrinter {
 
   public String printExpr(Expr expr) {
     return switch (expr) {
-      case Expr.Unary u -> String.format("(%s %s)", u.op.lexeme, this.printExpr(u.inner));
-      case Expr.Binary b -> String.format("(%s %s %s)", b.op.lexeme, this.printExpr(b.left), this.printExpr(b.right));
-      case Expr.Literal l -> l.value.lexeme;
+      case Expr.Unary u -> String.format("(%s %s)", u.op.lexeme(), this.printExpr(u.inner));
+      case Expr.Binary b -> String.format("(%s %s %s)", b.op.lexeme(), this.printExpr(b.left), this.printExpr(b.right));
+      case Expr.Literal l -> l.value.lexeme();
       case Expr.This t -> "this";
       case Expr.Grouping g -> String.format("(group %s)", this.printExpr(g.inner));
-      case Expr.Variable v -> String.format("%s", v.var.lexeme);
+      case Expr.Variable v -> String.format("%s", v.var.lexeme());
       case Expr.Call c -> {
         String res = "(" + this.printExpr(c.callee);
         for (Expr e: c.params) {
@@ -82,8 +82,8 @@ public class PrettyPrinter {
         }
         yield res + ")";
       }
-      case Expr.Get g -> String.format("(. %s %s)", this.printExpr(g.object), g.property.lexeme);
-      case Expr.Set s -> String.format("(= (. %s %s) %s)", this.printExpr(s.object), s.property.lexeme, this.printExpr(s.value));
+      case Expr.Get g -> String.format("(. %s %s)", this.printExpr(g.object), g.property.lexeme());
+      case Expr.Set s -> String.format("(= (. %s %s) %s)", this.printExpr(s.object), s.property.lexeme(), this.printExpr(s.value));
       case Expr.SuperCall s -> {
         String res = "(super";
         for (Expr e: s.params) {
@@ -91,7 +91,7 @@ public class PrettyPrinter {
         }
         yield res + ")";
       }
-      case Expr.SuperGet s -> String.format("(. super %s)", s.member.lexeme);
+      case Expr.SuperGet s -> String.format("(. super %s)", s.member.lexeme());
       default -> throw new Error("Non-exhaustive check");
     };
   }
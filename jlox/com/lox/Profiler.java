@@ -0,0 +1,108 @@
+package com.lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lox.ast.Stmt.FuncStmt;
+
+// A sampling profiler of Lox functions. The engines keep the Lox call stack
+// up to date with `enter` & `exit` around every call of a user function, and
+// a background thread samples it `hz` times per second. Samples are reported
+// in the collapsed stack format of flame graph tools: one line per distinct
+// stack, with the frames from the outermost one separated by `;`, followed by
+// the number of samples.
+//
+// A frame is the name of the function and the line of its declaration in
+// `source`, the top-level statements are the `<script>` frame. Calls the tree
+// walker shortcuts (see `Inliner`) have their frame too.
+//
+// Only the thread running the engine updates the stack. It publishes a frame
+// by writing `depth` after the frame, so that the sampler, which reads `depth`
+// first, sees every frame below `depth`.
+public class Profiler {
+  public static final int DEFAULT_HZ = 1000;
+
+  private final CharSequence source;
+  private final long intervalNanos;
+  private volatile FuncStmt[] frames = new FuncStmt[64];
+  private volatile int depth = 0;
+
+  private final Map<List<FuncStmt>, Integer> samples = new HashMap<>();
+  private Thread sampler = null;
+  private volatile boolean running = false;
+
+  public Profiler(CharSequence source, int hz) {
+    this.source = source;
+    this.intervalNanos = 1_000_000_000L / hz;
+  }
+
+  public void enter(FuncStmt func) {
+    final int depth = this.depth;
+    FuncStmt[] frames = this.frames;
+    if (depth == frames.length) {
+      frames = Arrays.copyOf(frames, depth * 2);
+      this.frames = frames;
+    }
+    frames[depth] = func;
+    this.depth = depth + 1;
+  }
+
+  public void exit() {
+    this.depth = this.depth - 1;
+  }
+
+  // Calls interrupted by a runtime error do not exit, the stack is reset
+  // before every top-level statement instead
+  public void reset() {
+    this.depth = 0;
+  }
+
+  public void start() {
+    this.running = true;
+    this.sampler = new Thread(() -> {
+      while (this.running) {
+        LockSupport.parkNanos(this.intervalNanos);
+        this.sample();
+      }
+    }, "jlox-profiler");
+    this.sampler.setDaemon(true);
+    this.sampler.start();
+  }
+
+  public void stop() throws InterruptedException {
+    this.running = false;
+    this.sampler.join();
+  }
+
+  private void sample() {
+    final int depth = this.depth;
+    final FuncStmt[] frames = this.frames;
+    final List<FuncStmt> stack = Arrays.asList(Arrays.copyOf(frames, Math.min(depth, frames.length)));
+    synchronized (this.samples) {
+      this.samples.merge(stack, 1, Integer::sum);
+    }
+  }
+
+  public void writeCollapsed(PrintStream out) {
+    final List<String> lines = new ArrayList<>();
+    final LineIndex sourceLines = new LineIndex(this.source);
+    synchronized (this.samples) {
+      for (Map.Entry<List<FuncStmt>, Integer> entry : this.samples.entrySet()) {
+        final StringBuilder line = new StringBuilder("<script>");
+        for (FuncStmt func : entry.getKey()) {
+          line.append(';').append(func.name.lexeme()).append(':').append(sourceLines.lineOf(func.name.startOffset));
+        }
+        lines.add(line.append(' ').append(entry.getValue()).toString());
+      }
+    }
+    lines.sort(null);
+    for (String line : lines) {
+      out.println(line);
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package com.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+import com.lox.ast.Stmt.FuncStmt;
+import com.lox.utils.IntMap;
+import com.lox.utils.Pair;
+
+// Statically resolves every local identifier to a (depth, slot) pair so that
+// the interpreter does not have to lookup identifiers by name.
+//
+// The scopes pushed here must mirror the environments created by the
+// interpreter one-to-one:
+// - Every scope declares all of its identifiers upon entering (see the
+// "Early resolving identifiers" section in the README), so an identifier used
+// before its declaration is still resolved to the scope, and the interpreter
+// reports it as being in the temporal deadzone.
+// - Identifiers not found in any scope are globals, which are still looked up
+// by their symbol at runtime.
+//
+// No error is reported here, all errors are still reported by the interpreter.
+public class Resolver {
+  // The slots of the identifiers of every scope, keyed by the id of their
+  // symbol
+  private final List<IntMap<Integer>> scopes = new ArrayList<>();
+
+  public void resolve(List<Stmt> stmts) {
+    for (Stmt stmt : stmts) {
+      this.resolveStmt(stmt);
+    }
+  }
+
+  public void resolveStmt(Stmt stmt) {
+    switch (stmt) {
+      case Stmt.PrintStmt p -> this.resolveExpr(p.expr);
+      case Stmt.ExprStmt e -> this.resolveExpr(e.expr);
+      case Stmt.ReturnStmt r -> this.resolveExpr(r.expr);
+      case Stmt.DeclStmt d -> {
+        if (d.expr != null) {
+          this.resolveExpr(d.expr);
+        }
+        d.slot = this.declaredSlot(d.id.symbol());
+      }
+      // Branches & loop bodies are statements, not declarations, so they
+      // declare nothing by themselves and do not need a scope. If they are
+      // blocks, the blocks create their own scopes
+      case Stmt.IfStmt i -> {
+        this.resolveExpr(i.cond);
+        this.resolveStmt(i.thenBranch);
+        if (i.elseBranch != null) {
+          this.resolveStmt(i.elseBranch);
+        }
+      }
+      case Stmt.WhileStmt w -> {
+        this.resolveExpr(w.cond);
+        this.resolveStmt(w.body);
+      }
+      case Stmt.ForStmt f -> {
+        final boolean hasScope = f.init instanceof Stmt.DeclStmt;
+        if (hasScope) {
+          this.beginScope();
+          this.declare(((Stmt.DeclStmt) f.init).id.symbol());
+        }
+        this.resolveStmt(f.init);
+        this.resolveStmt(f.cond);
+        this.resolveExpr(f.post);
+        this.resolveStmt(f.body);
+        if (hasScope) {
+          this.endScope();
+        }
+      }
+      case Stmt.BlockStmt b -> this.resolveBlock(b);
+      case Stmt.FuncStmt f -> {
+        f.slot = this.declaredSlot(f.name.symbol());
+        this.resolveFunction(f, false);
+      }
+      case Stmt.ClsStmt c -> {
+        if (c.supercls != null) {
+          final Pair<Integer, Integer> location = this.lookup(c.supercls.symbol());
+          c.superclsDepth = location.first;
+          c.superclsSlot = location.second;
+        }
+        c.slot = this.declaredSlot(c.name.symbol());
+
+        // Methods are defined in a class scope created along with the class,
+        // and receive the object as an implicit first parameter, the
+        // declaration order must match the slots in `SpecialSymbols`
+        this.beginScope();
+        this.declare(SpecialSymbols.THIS_CLASS);
+        this.declare(SpecialSymbols.SUPER_CLASS);
+        for (FuncStmt method : c.methods) {
+          this.resolveFunction(method, true);
+        }
+        this.endScope();
+      }
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  public void resolveExpr(Expr expr) {
+    switch (expr) {
+      case Expr.Binary b -> {
+        this.resolveExpr(b.left);
+        this.resolveExpr(b.right);
+        b.numeric = switch (b.op.type) {
+          case TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.SLASH -> true;
+          default -> false;
+        };
+      }
+      case Expr.Unary u -> {
+        this.resolveExpr(u.inner);
+        u.numeric = u.op.type == TokenType.MINUS;
+      }
+      case Expr.Grouping g -> {
+        this.resolveExpr(g.inner);
+        g.numeric = g.inner.numeric;
+      }
+      case Expr.Literal l -> l.numeric = l.value.type == TokenType.NUMBER;
+      case Expr.Variable v -> {
+        final Pair<Integer, Integer> location = this.lookup(v.var.symbol());
+        v.depth = location.first;
+        v.slot = location.second;
+      }
+      case Expr.This t -> t.depth = this.lookup(SpecialSymbols.THIS_OBJECT).first;
+      case Expr.Call c -> {
+        this.resolveExpr(c.callee);
+        for (Expr param : c.params) {
+          this.resolveExpr(param);
+        }
+      }
+      case Expr.Get g -> this.resolveExpr(g.object);
+      case Expr.Set s -> {
+        this.resolveExpr(s.value);
+        this.resolveExpr(s.object);
+      }
+      case Expr.SuperGet s -> s.depth = this.lookup(SpecialSymbols.THIS_OBJECT).first;
+      case Expr.SuperCall s -> {
+        s.depth = this.lookup(SpecialSymbols.THIS_OBJECT).first;
+        for (Expr param : s.params) {
+          this.resolveExpr(param);
+        }
+      }
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  private void resolveFunction(FuncStmt func, boolean isMethod) {
+    this.beginScope();
+    if (isMethod) {
+      this.declare(SpecialSymbols.THIS_OBJECT);
+    }
+    func.redeclaredParam = null;
+    for (Token param : func.params) {
+      if (!this.declare(param.symbol()) && func.redeclaredParam == null) {
+        func.redeclaredParam = param.lexeme();
+      }
+    }
+    this.resolveBlock(func.body);
+    this.endScope();
+  }
+
+  // Mirror `Interpreter.createScopeEnvironment`: a block gets its own scope
+  // only if it declares something
+  private void resolveBlock(Stmt.BlockStmt block) {
+    this.beginScope();
+    block.redeclared = null;
+    for (Stmt stmt : block.stmts) {
+      final String name = this.declare(stmt);
+      if (name != null && block.redeclared == null) {
+        block.redeclared = name;
+      }
+    }
+    block.scopeSize = this.scopes.get(this.scopes.size() - 1).size();
+    if (block.scopeSize == 0) {
+      this.endScope();
+      this.resolve(block.stmts);
+      return;
+    }
+    this.resolve(block.stmts);
+    this.endScope();
+  }
+
+  private void beginScope() {
+    this.scopes.add(new IntMap<>());
+  }
+
+  private void endScope() {
+    this.scopes.remove(this.scopes.size() - 1);
+  }
+
+  // Return the declared name if it is a redeclaration
+  private String declare(Stmt stmt) {
+    final Symbol name = switch (stmt) {
+      case Stmt.DeclStmt d -> d.id.symbol();
+      case Stmt.FuncStmt f -> f.name.symbol();
+      case Stmt.ClsStmt c -> c.name.symbol();
+      default -> null;
+    };
+    if (name == null || this.declare(name)) {
+      return null;
+    }
+    return name.name;
+  }
+
+  // Redeclarations keep the first slot and are reported by the interpreter
+  // upon entering the scope
+  private boolean declare(Symbol name) {
+    final IntMap<Integer> scope = this.scopes.get(this.scopes.size() - 1);
+    return scope.putIfAbsent(name.id, scope.size()) == null;
+  }
+
+  private int declaredSlot(Symbol name) {
+    if (this.scopes.isEmpty()) {
+      return -1;
+    }
+    return this.scopes.get(this.scopes.size() - 1).get(name.id);
+  }
+
+  // Return the (depth, slot) of an identifier, (-1, -1) if it is a global
+  private Pair<Integer, Integer> lookup(Symbol name) {
+    for (int i = this.scopes.size() - 1; i >= 0; --i) {
+      final Integer slot = this.scopes.get(i).get(name.id);
+      if (slot != null) {
+        return new Pair<>(this.scopes.size() - 1 - i, slot);
+      }
+    }
+    return new Pair<>(-1, -1);
+  }
+}
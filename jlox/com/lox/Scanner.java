@@ -10,32 +10,70 @@ import com.lox.ast.TokenType;
 import com.lox.utils.Pair;
 
 public class Scanner {
-  private final String source;
-  private final List<Token> tokens = new ArrayList<>();
+  // How tokens are recognized, both modes produce the same tokens & errors
+  public enum Mode {
+    // A switch over the current character, with the Unicode character classes
+    // of `Character`
+    SIMPLE,
+    // ASCII character classes & operators looked up in tables, keywords
+    // matched on the characters of the source, and the value of short number
+    // literals computed without parsing a String. Other characters are
+    // scanned like SIMPLE does
+    FAST,
+  }
+
+  private final CharSequence source;
+  private final boolean fast;
   private final List<ScannerException> errors = new ArrayList<>();
+  private final Interner interner = new Interner();
 
   private int currentOffset = 0;
 
-  public Scanner(String source) {
+  public Scanner(CharSequence source) {
+    this(source, Mode.FAST);
+  }
+
+  public Scanner(CharSequence source, Mode mode) {
     this.source = source;
+    this.fast = mode == Mode.FAST;
   }
 
   public Pair<List<Token>, List<ScannerException>> tokenize() {
+    final List<Token> tokens = new ArrayList<>();
     if (this.isAtEnd())
-      return new Pair<>(this.tokens, this.errors);
+      return new Pair<>(tokens, this.errors);
+
+    Token token;
+    do {
+      token = this.nextToken();
+      tokens.add(token);
+    } while (token.type != TokenType.EOF);
+    return new Pair<>(tokens, this.errors);
+  }
 
+  // Pull the next token, the invalid tokens skipped on the way are added to
+  // `errors()`. Return an EOF token once the whole source is scanned
+  public Token nextToken() {
     while (!this.isAtEnd()) {
       try {
-        this.extractNextToken();
+        final Token token = this.fast ? this.extractNextTokenFast() : this.extractNextToken();
+        if (token != null)
+          return token;
       } catch (ScannerException e) {
         this.errors.add(e);
       }
     }
-    this.tokens.add(new Token(TokenType.EOF, "", null, this.currentOffset, this.currentOffset));
-    return new Pair<>(this.tokens, this.errors);
+    return new Token(TokenType.EOF, this.currentOffset, this.currentOffset);
   }
 
-  private void extractNextToken() throws ScannerException {
+  // The errors of the tokens pulled so far
+  public List<ScannerException> errors() {
+    return this.errors;
+  }
+
+  // Return null if the characters extracted are not a token, i.e. spaces or a
+  // comment
+  private Token extractNextToken() throws ScannerException {
     assert !this.isAtEnd();
 
     int startOffset = currentOffset;
@@ -43,169 +81,164 @@ public class Scanner {
     switch (c) {
       case '(':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.LEFT_PAREN,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case ')':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.RIGHT_PAREN,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '{':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.LEFT_BRACE,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '}':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.RIGHT_BRACE,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case ',':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.COMMA,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '.':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.DOT,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '-':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.MINUS,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '+':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.PLUS,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case ';':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.SEMICOLON,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '*':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.STAR,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '!':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             this.match('=') ? TokenType.BANG_EQUAL : TokenType.BANG,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '=':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             this.match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '<':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             this.match('=') ? TokenType.LESS_EQUAL : TokenType.LESS,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '>':
         this.advance();
-        this.tokens.add(new Token(
+        return new Token(
             this.match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '/':
         this.advance();
         if (this.match('/')) {
           while (this.peek() != '\n' && !this.isAtEnd())
             this.advance();
-          break;
+          return null;
         }
-        this.tokens.add(new Token(
+        return new Token(
             TokenType.SLASH,
-            this.source.substring(startOffset, this.currentOffset),
-            null,
             startOffset,
-            this.currentOffset));
-        break;
+            this.currentOffset);
       case '"':
-        this.extractString();
-        break;
+        return this.extractString();
       default:
         if (ScannerUtils.isSpace(c)) {
           this.advance();
-          break;
+          return null;
         }
         if (ScannerUtils.isAlphaOrUnderscore(c)) {
-          this.extractIdentifier();
-          break;
+          return this.extractIdentifier();
         }
         if (ScannerUtils.isDigit(c)) {
-          this.extractNumber();
-          break;
+          return this.extractNumber();
         }
+        // Skip the character so that scanning resumes after it
+        this.advance();
         throw new ScannerException("Unknown character: " + Character.valueOf(c), startOffset, this.currentOffset);
     }
   }
 
+  // See `Mode.FAST`
+  private Token extractNextTokenFast() throws ScannerException {
+    assert !this.isAtEnd();
+
+    final int startOffset = this.currentOffset;
+    final char c = this.source.charAt(startOffset);
+    if (c >= ScannerUtils.ASCII_SIZE) {
+      return this.extractNextToken();
+    }
+
+    final TokenType operator = ScannerUtils.OPERATORS[c];
+    if (operator != null) {
+      this.currentOffset += 1;
+      final TokenType withEqual = ScannerUtils.OPERATORS_WITH_EQUAL[c];
+      return new Token(
+          withEqual != null && this.match('=') ? withEqual : operator,
+          startOffset,
+          this.currentOffset);
+    }
+
+    final int cls = ScannerUtils.CLASSES[c];
+    if ((cls & (ScannerUtils.ALPHA | ScannerUtils.UNDERSCORE)) != 0) {
+      return this.extractIdentifierFast();
+    }
+    if ((cls & ScannerUtils.DIGIT) != 0) {
+      return this.extractNumberFast();
+    }
+    if ((cls & ScannerUtils.SPACE) != 0) {
+      final int length = this.source.length();
+      int offset = startOffset + 1;
+      char next;
+      while (offset < length && (next = this.source.charAt(offset)) < ScannerUtils.ASCII_SIZE
+          && (ScannerUtils.CLASSES[next] & ScannerUtils.SPACE) != 0)
+        ++offset;
+      this.currentOffset = offset;
+      return null;
+    }
+    // Comments, slashes, strings & unknown characters
+    return this.extractNextToken();
+  }
+
   private boolean isAtEnd() {
     return this.currentOffset >= source.length();
   }
 
-  private void extractString() throws ScannerException {
+  private Token extractString() throws ScannerException {
     int startOffset = this.currentOffset;
 
     if (this.advance() != '"') {
@@ -222,15 +255,15 @@ public class Scanner {
 
     this.advance(); // Consume the closing '"'
 
-    this.tokens.add(new Token(
+    return new Token(
         TokenType.STRING,
-        this.source.substring(startOffset, this.currentOffset),
-        this.source.substring(startOffset + 1, this.currentOffset - 1),
+        this.lexeme(startOffset, this.currentOffset),
+        this.lexeme(startOffset + 1, this.currentOffset - 1),
         startOffset,
-        this.currentOffset));
+        this.currentOffset);
   }
 
-  private void extractNumber() throws ScannerException {
+  private Token extractNumber() throws ScannerException {
     int startOffset = this.currentOffset;
 
     // Match invalid numerical literals also
@@ -245,38 +278,131 @@ public class Scanner {
         this.advance();
     }
 
+    return this.parseNumber(startOffset);
+  }
+
+  // Scans the same characters as `extractNumber`. A literal made of digits
+  // only, with an optional decimal point, has an exact mantissa & power of ten
+  // if it is short enough, so their quotient is correctly rounded like the
+  // value `Double.parseDouble` returns
+  private Token extractNumberFast() throws ScannerException {
+    final int startOffset = this.currentOffset;
+    final CharSequence source = this.source;
+    final int length = source.length();
+
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean simple = true;
+    int offset = startOffset;
+    char c;
+    while (offset < length && ScannerUtils.isIdentifierPart(c = source.charAt(offset))) {
+      simple &= c >= '0' && c <= '9';
+      mantissa = mantissa * 10 + (c - '0');
+      ++digits;
+      ++offset;
+    }
+    if (offset < length && source.charAt(offset) == '.') {
+      ++offset;
+      while (offset < length && ScannerUtils.isIdentifierPart(c = source.charAt(offset))) {
+        simple &= c >= '0' && c <= '9';
+        mantissa = mantissa * 10 + (c - '0');
+        ++digits;
+        ++fractionDigits;
+        ++offset;
+      }
+    }
+    this.currentOffset = offset;
+
+    if (!simple || digits > ScannerUtils.MAX_EXACT_DIGITS) {
+      return this.parseNumber(startOffset);
+    }
+    return new Token(
+        TokenType.NUMBER,
+        this.lexeme(startOffset, offset),
+        (double) mantissa / ScannerUtils.POWERS_OF_TEN[fractionDigits],
+        startOffset,
+        offset);
+  }
+
+  private Token parseNumber(int startOffset) throws ScannerException {
+    final String text = this.lexeme(startOffset, this.currentOffset);
     try {
-      this.tokens.add(new Token(
+      return new Token(
           TokenType.NUMBER,
-          this.source.substring(startOffset, this.currentOffset),
-          Double.parseDouble(source.substring(startOffset, this.currentOffset)),
+          text,
+          Double.parseDouble(text),
           startOffset,
-          this.currentOffset));
+          this.currentOffset);
     } catch (Exception e) {
       // Double.parseDouble will fail if the numerical literal is invalid
       throw new ScannerException("Invalid literal", startOffset, this.currentOffset);
     }
   }
 
-  private void extractIdentifier() {
+  private Token extractIdentifier() {
     int startOffset = this.currentOffset;
 
     while (ScannerUtils.isAlphaNumericOrUnderscore(this.peek()))
       this.advance();
 
-    String text = source.substring(startOffset, this.currentOffset);
-    TokenType type = ScannerUtils.keywords.get(text);
+    // Keywords are String literals, which are interned too
+    final Symbol symbol = this.interner.intern(this.source, startOffset, this.currentOffset);
+    TokenType type = ScannerUtils.keywords.get(symbol.name);
     if (type == null)
       type = TokenType.IDENTIFIER;
 
-    this.tokens.add(new Token(
+    return new Token(
         type,
-        this.source.substring(startOffset, this.currentOffset),
+        symbol,
         type == TokenType.TRUE ? Boolean.valueOf(true)
             : type == TokenType.FALSE ? Boolean.valueOf(false)
                 : null,
         startOffset,
-        this.currentOffset));
+        this.currentOffset);
+  }
+
+  private Token extractIdentifierFast() {
+    final int startOffset = this.currentOffset;
+    final CharSequence source = this.source;
+    final int length = source.length();
+
+    // The String hash of the name, for the interner
+    int hash = source.charAt(startOffset);
+    int offset = startOffset + 1;
+    char c;
+    while (offset < length && ScannerUtils.isIdentifierPart(c = source.charAt(offset))) {
+      hash = 31 * hash + c;
+      ++offset;
+    }
+    this.currentOffset = offset;
+
+    final TokenType keyword = ScannerUtils.keyword(source, startOffset, offset);
+    if (keyword != null) {
+      return new Token(
+          keyword,
+          ScannerUtils.KEYWORD_SYMBOLS[keyword.ordinal()],
+          keyword == TokenType.TRUE ? Boolean.valueOf(true)
+              : keyword == TokenType.FALSE ? Boolean.valueOf(false)
+                  : null,
+          startOffset,
+          offset);
+    }
+    return new Token(
+        TokenType.IDENTIFIER,
+        this.interner.intern(source, startOffset, offset, hash),
+        null,
+        startOffset,
+        offset);
+  }
+
+  // An empty lexeme is the shared "", as with `String.substring`: strings are
+  // compared by reference, and all empty string literals are equal
+  private String lexeme(int startOffset, int endOffset) {
+    if (startOffset == endOffset) {
+      return "";
+    }
+    return this.source.subSequence(startOffset, endOffset).toString();
   }
 
   private char advance() {
@@ -347,4 +473,126 @@ class ScannerUtils {
     keywords.put("super", TokenType.SUPER);
     keywords.put("this", TokenType.THIS);
   }
+
+  // The lookup tables of `Scanner.Mode.FAST`, indexed by ASCII character.
+  // Character classes are computed with the functions above, so that both
+  // modes agree
+  static final int ASCII_SIZE = 128;
+
+  static final int DIGIT = 1;
+  static final int ALPHA = 2;
+  static final int UNDERSCORE = 4;
+  static final int SPACE = 8;
+  static final byte[] CLASSES = new byte[ASCII_SIZE];
+
+  // The characters that are tokens on their own, and the tokens they form when
+  // followed by '='
+  static final TokenType[] OPERATORS = new TokenType[ASCII_SIZE];
+  static final TokenType[] OPERATORS_WITH_EQUAL = new TokenType[ASCII_SIZE];
+
+  // The symbol of every keyword, by TokenType ordinal
+  static final Symbol[] KEYWORD_SYMBOLS = new Symbol[TokenType.values().length];
+
+  // Number literals with at most this many digits have an exact mantissa
+  static final int MAX_EXACT_DIGITS = 15;
+  static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+  static {
+    for (char c = 0; c < ASCII_SIZE; ++c) {
+      CLASSES[c] = (byte) ((ScannerUtils.isDigit(c) ? DIGIT : 0)
+          | (ScannerUtils.isAlpha(c) ? ALPHA : 0)
+          | (c == '_' ? UNDERSCORE : 0)
+          | (ScannerUtils.isSpace(c) ? SPACE : 0));
+    }
+
+    OPERATORS['('] = TokenType.LEFT_PAREN;
+    OPERATORS[')'] = TokenType.RIGHT_PAREN;
+    OPERATORS['{'] = TokenType.LEFT_BRACE;
+    OPERATORS['}'] = TokenType.RIGHT_BRACE;
+    OPERATORS[','] = TokenType.COMMA;
+    OPERATORS['.'] = TokenType.DOT;
+    OPERATORS['-'] = TokenType.MINUS;
+    OPERATORS['+'] = TokenType.PLUS;
+    OPERATORS[';'] = TokenType.SEMICOLON;
+    OPERATORS['*'] = TokenType.STAR;
+    OPERATORS['!'] = TokenType.BANG;
+    OPERATORS['='] = TokenType.EQUAL;
+    OPERATORS['<'] = TokenType.LESS;
+    OPERATORS['>'] = TokenType.GREATER;
+    OPERATORS_WITH_EQUAL['!'] = TokenType.BANG_EQUAL;
+    OPERATORS_WITH_EQUAL['='] = TokenType.EQUAL_EQUAL;
+    OPERATORS_WITH_EQUAL['<'] = TokenType.LESS_EQUAL;
+    OPERATORS_WITH_EQUAL['>'] = TokenType.GREATER_EQUAL;
+
+    for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+      KEYWORD_SYMBOLS[keyword.getValue().ordinal()] = Symbol.of(keyword.getKey());
+    }
+
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i <= MAX_EXACT_DIGITS; ++i) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  static boolean isIdentifierPart(char c) {
+    if (c < ASCII_SIZE) {
+      return (CLASSES[c] & (DIGIT | ALPHA | UNDERSCORE)) != 0;
+    }
+    return ScannerUtils.isAlphaNumericOrUnderscore(c);
+  }
+
+  // Return the keyword `source[startOffset, endOffset)` is, null if it is not
+  // a keyword. Keywords are told apart by their first character, then by
+  // their second one if needed, before comparing the rest
+  static TokenType keyword(CharSequence source, int startOffset, int endOffset) {
+    return switch (source.charAt(startOffset)) {
+      case 'a' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "and", TokenType.AND);
+      case 'c' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "class", TokenType.CLASS);
+      case 'e' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "else", TokenType.ELSE);
+      case 'f' -> {
+        if (endOffset - startOffset < 2) {
+          yield null;
+        }
+        yield switch (source.charAt(startOffset + 1)) {
+          case 'a' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "false", TokenType.FALSE);
+          case 'o' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "for", TokenType.FOR);
+          case 'u' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "fun", TokenType.FUN);
+          default -> null;
+        };
+      }
+      case 'i' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "if", TokenType.IF);
+      case 'n' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "nil", TokenType.NIL);
+      case 'o' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "or", TokenType.OR);
+      case 'p' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "print", TokenType.PRINT);
+      case 'r' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "return", TokenType.RETURN);
+      case 's' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "super", TokenType.SUPER);
+      case 't' -> {
+        if (endOffset - startOffset < 2) {
+          yield null;
+        }
+        yield switch (source.charAt(startOffset + 1)) {
+          case 'h' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "this", TokenType.THIS);
+          case 'r' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "true", TokenType.TRUE);
+          default -> null;
+        };
+      }
+      case 'v' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "var", TokenType.VAR);
+      case 'w' -> ScannerUtils.matchKeyword(source, startOffset, endOffset, "while", TokenType.WHILE);
+      default -> null;
+    };
+  }
+
+  // The first character of `keyword` is already matched
+  private static TokenType matchKeyword(CharSequence source, int startOffset, int endOffset, String keyword,
+      TokenType type) {
+    if (endOffset - startOffset != keyword.length()) {
+      return null;
+    }
+    for (int i = 1; i < keyword.length(); ++i) {
+      if (source.charAt(startOffset + i) != keyword.charAt(i)) {
+        return null;
+      }
+    }
+    return type;
+  }
 }
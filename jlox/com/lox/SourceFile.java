@@ -0,0 +1,115 @@
+package com.lox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+// Loads scripts as UTF-8 through a memory-mapped file, rather than reading
+// their bytes on the heap & decoding them into a String.
+//
+// A script of ASCII characters only, the common case for generated scripts,
+// is scanned from the mapped bytes, without any copy on the heap. Other
+// scripts are decoded into a CharBuffer, which takes as much heap as the
+// String of a non-Latin-1 text, without the array of bytes. Malformed input
+// is replaced by U+FFFD, as when decoding a String.
+public final class SourceFile {
+  private static final long ASCII_MASK = 0x8080808080808080L;
+  private static final int CHUNK_SIZE = 64 << 10;
+
+  private SourceFile() {}
+
+  public static CharSequence load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Script too large: " + path);
+      }
+      final MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (isAscii(bytes)) {
+        return new AsciiSource(bytes);
+      }
+      // UTF-8 never decodes to more chars than bytes, so `chars` is not
+      // reallocated as `CharsetDecoder.decode` would
+      final CharBuffer chars = CharBuffer.allocate((int) size);
+      final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      // Decoders are much faster from arrays, decode chunks of the mapped
+      // bytes copied to a small array
+      final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+      while (bytes.hasRemaining()) {
+        final int length = Math.min(chunk.remaining(), bytes.remaining());
+        chunk.put(bytes.slice(bytes.position(), length));
+        bytes.position(bytes.position() + length);
+        chunk.flip();
+        decoder.decode(chunk, chars, !bytes.hasRemaining());
+        // Keep the bytes of a char split between chunks
+        chunk.compact();
+      }
+      decoder.flush(chars);
+      return chars.flip();
+    }
+  }
+
+  // Check 8 bytes at a time
+  private static boolean isAscii(ByteBuffer bytes) {
+    final int length = bytes.limit();
+    int i = 0;
+    for (; i + Long.BYTES <= length; i += Long.BYTES) {
+      if ((bytes.getLong(i) & ASCII_MASK) != 0) {
+        return false;
+      }
+    }
+    for (; i < length; ++i) {
+      if (bytes.get(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The chars of a buffer of ASCII bytes
+  static final class AsciiSource implements CharSequence {
+    private final ByteBuffer bytes;
+
+    AsciiSource(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return this.bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) this.bytes.get(index);
+    }
+
+    // Slices are lexemes & literals, which are copied to Strings anyway. As
+    // with `String.substring`, an empty slice is the shared ""
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, this.length());
+      if (start == end) {
+        return "";
+      }
+      final byte[] slice = new byte[end - start];
+      this.bytes.get(start, slice);
+      return new String(slice, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+      return this.subSequence(0, this.length()).toString();
+    }
+  }
+}
@@ -1,7 +1,15 @@
 package com.lox;
 
 public class SpecialSymbols {
-  public static final String THIS_OBJECT = "this";
-  public static final String THIS_CLASS = "__CLASS__";
-  public static final String SUPER_CLASS = "super";
+  public static final Symbol THIS_OBJECT = Symbol.of("this");
+  public static final Symbol THIS_CLASS = Symbol.of("__CLASS__");
+  public static final Symbol SUPER_CLASS = Symbol.of("super");
+  // The method called upon instantiation
+  public static final Symbol CONSTRUCTOR = Symbol.of("constructor");
+
+  // `this` is the first slot of the parameter scope of a method, the class
+  // scope enclosing the methods contains `__CLASS__` and `super`
+  public static final int THIS_OBJECT_SLOT = 0;
+  public static final int THIS_CLASS_SLOT = 0;
+  public static final int SUPER_CLASS_SLOT = 1;
 }
@@ -0,0 +1,38 @@
+package com.lox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// An interned name: there is one Symbol per distinct name, so symbols are
+// compared by identity, and each has a small int id, dense from 0, to key the
+// maps of names (see `IntMap`) of globals, scopes, fields & methods.
+//
+// The scanner creates the symbols of identifiers, see `Token.symbol`. Ids are
+// stable for the lifetime of the process, they are not serialized.
+public final class Symbol {
+  private static final Map<String, Symbol> symbols = new HashMap<>();
+
+  public final String name;
+  public final int id;
+
+  private Symbol(String name, int id) {
+    this.name = name;
+    this.id = id;
+  }
+
+  public static Symbol of(String name) {
+    synchronized (symbols) {
+      Symbol symbol = symbols.get(name);
+      if (symbol == null) {
+        symbol = new Symbol(name.intern(), symbols.size());
+        symbols.put(symbol.name, symbol);
+      }
+      return symbol;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+}
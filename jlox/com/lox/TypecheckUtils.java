@@ -0,0 +1,42 @@
+package com.lox;
+
+import com.lox.object.LoxBoolean;
+import com.lox.object.LoxClass;
+import com.lox.object.LoxFunction;
+import com.lox.object.LoxNil;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+import com.lox.object.LoxString;
+
+class TypecheckUtils {
+  // Primitives are backed by their own Java classes, checking the Java class
+  // avoids walking the class hierarchy and is what the casts after these
+  // checks rely on
+  public static boolean isNumber(LoxObject obj) {
+    return obj instanceof LoxNumber;
+  }
+
+  public static boolean isString(LoxObject obj) {
+    return obj instanceof LoxString;
+  }
+
+  public static boolean isBoolean(LoxObject obj) {
+    return obj instanceof LoxBoolean;
+  }
+
+  public static boolean isNil(LoxObject obj) {
+    return obj instanceof LoxNil;
+  }
+
+  public static boolean isCallable(LoxObject obj) {
+    return obj.instanceOf(LoxFunction.OBJECT) || obj.instanceOf(LoxClass.OBJECT);
+  }
+
+  public static boolean isSameType(LoxObject obj1, LoxObject obj2) {
+    return obj1.cls() == obj2.cls();
+  }
+
+  public static String typenameOf(LoxObject obj) {
+    return obj.cls().name;
+  }
+}
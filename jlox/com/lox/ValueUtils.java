@@ -0,0 +1,56 @@
+package com.lox;
+
+import com.lox.ast.Token;
+import com.lox.object.LoxBoolean;
+import com.lox.object.LoxNil;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+import com.lox.object.LoxString;
+
+class ValueUtils {
+  public static boolean isFalsy(LoxObject obj) {
+    if (TypecheckUtils.isBoolean(obj)) {
+      return !((LoxBoolean) obj).value;
+    }
+    return TypecheckUtils.isNil(obj);
+  }
+
+  public static boolean isTruthy(LoxObject obj) {
+    return !ValueUtils.isFalsy(obj);
+  }
+
+  public static LoxBoolean getLoxBool(boolean b) {
+    return b ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+  }
+
+  public static LoxObject literalValue(Token token) {
+    if (token.literal == null) {
+      return LoxNil.NIL;
+    }
+    return switch (token.literal) {
+      case Double d -> LoxNumber.valueOf(d);
+      case String s -> new LoxString(s);
+      case Boolean b -> ValueUtils.getLoxBool(b);
+      default -> throw new Error(String.format("Unreachable: Unexpected literal type"));
+    };
+  }
+
+  public static boolean equals(LoxObject o1, LoxObject o2) {
+    if (!TypecheckUtils.isSameType(o1, o2)) {
+      return false;
+    }
+    if (TypecheckUtils.isNumber(o1)) {
+      return ((LoxNumber) o1).value == ((LoxNumber) o2).value;
+    }
+    if (TypecheckUtils.isNil(o1)) {
+      return true;
+    }
+    if (TypecheckUtils.isBoolean(o1)) {
+      return ((LoxBoolean) o1).value == ((LoxBoolean) o2).value;
+    }
+    if (TypecheckUtils.isString(o1)) {
+      return ((LoxString) o1).value == ((LoxString) o2).value;
+    }
+    return o1 == o2;
+  }
+}
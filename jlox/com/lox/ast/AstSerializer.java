@@ -0,0 +1,473 @@
+package com.lox.ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A compact binary form of the syntax tree, so that a script can be run
+// without scanning & parsing it again. Only what the parser produces is kept,
+// including the offsets of the tokens, the resolver's annotations are
+// computed again when the statements are evaluated.
+//
+// Layout: MAGIC, VERSION, the string table (every lexeme & string literal,
+// once), then the statements. Integers are unsigned LEB128 varints and every
+// node starts with its tag, a missing node is written as NONE.
+public class AstSerializer {
+  public static final int MAGIC = 0x4c4f5841; // "LOXA"
+  // Bump whenever the layout or the syntax tree changes
+  public static final int VERSION = 1;
+
+  private static final int NONE = 0;
+  // Statements
+  private static final int EXPR_STMT = 1;
+  private static final int PRINT_STMT = 2;
+  private static final int RETURN_STMT = 3;
+  private static final int DECL_STMT = 4;
+  private static final int FUNC_STMT = 5;
+  private static final int CLS_STMT = 6;
+  private static final int IF_STMT = 7;
+  private static final int WHILE_STMT = 8;
+  private static final int FOR_STMT = 9;
+  private static final int BLOCK_STMT = 10;
+  // Expressions
+  private static final int BINARY = 20;
+  private static final int UNARY = 21;
+  private static final int LITERAL = 22;
+  private static final int VARIABLE = 23;
+  private static final int GROUPING = 24;
+  private static final int CALL = 25;
+  private static final int GET = 26;
+  private static final int SET = 27;
+  private static final int SUPER_CALL = 28;
+  private static final int SUPER_GET = 29;
+  private static final int THIS = 30;
+  // Token literals
+  private static final int NO_LITERAL = 0;
+  private static final int NUMBER_LITERAL = 1;
+  private static final int STRING_LITERAL = 2;
+  private static final int FALSE_LITERAL = 3;
+  private static final int TRUE_LITERAL = 4;
+
+  private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+  public static byte[] serialize(List<Stmt> stmts) {
+    return new Writer().write(stmts);
+  }
+
+  // The input is not trusted: any malformed tree, including a truncated one,
+  // fails with an IOException
+  public static List<Stmt> deserialize(ByteBuffer buffer) throws IOException {
+    try {
+      return new Reader(buffer).read();
+    } catch (RuntimeException | StackOverflowError e) {
+      throw new IOException("Corrupted syntax tree", e);
+    }
+  }
+
+  private static class Writer {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringTable = new ArrayList<>();
+
+    byte[] write(List<Stmt> stmts) {
+      this.writeVarint(stmts.size());
+      for (Stmt stmt : stmts) {
+        this.writeStmt(stmt);
+      }
+      final byte[] body = this.out.toByteArray();
+
+      // The string table goes before the statements that refer to it
+      this.out.reset();
+      final ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+      this.out.writeBytes(header.array());
+      this.writeVarint(this.stringTable.size());
+      for (String s : this.stringTable) {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        this.writeVarint(bytes.length);
+        this.out.writeBytes(bytes);
+      }
+      this.out.writeBytes(body);
+      return this.out.toByteArray();
+    }
+
+    private void writeStmt(Stmt stmt) {
+      switch (stmt) {
+        case null -> this.writeVarint(NONE);
+        case Stmt.ExprStmt e -> {
+          this.writeVarint(EXPR_STMT);
+          this.writeExpr(e.expr);
+        }
+        case Stmt.PrintStmt p -> {
+          this.writeVarint(PRINT_STMT);
+          this.writeExpr(p.expr);
+        }
+        case Stmt.ReturnStmt r -> {
+          this.writeVarint(RETURN_STMT);
+          this.writeExpr(r.expr);
+        }
+        case Stmt.DeclStmt d -> {
+          this.writeVarint(DECL_STMT);
+          this.writeToken(d.id);
+          this.writeExpr(d.expr);
+        }
+        case Stmt.FuncStmt f -> {
+          this.writeVarint(FUNC_STMT);
+          this.writeFunction(f);
+        }
+        case Stmt.ClsStmt c -> {
+          this.writeVarint(CLS_STMT);
+          this.writeToken(c.name);
+          this.writeOptionalToken(c.supercls);
+          this.writeVarint(c.methods.size());
+          for (Stmt.FuncStmt method : c.methods) {
+            this.writeFunction(method);
+          }
+        }
+        case Stmt.IfStmt i -> {
+          this.writeVarint(IF_STMT);
+          this.writeExpr(i.cond);
+          this.writeStmt(i.thenBranch);
+          this.writeStmt(i.elseBranch);
+        }
+        case Stmt.WhileStmt w -> {
+          this.writeVarint(WHILE_STMT);
+          this.writeExpr(w.cond);
+          this.writeStmt(w.body);
+        }
+        case Stmt.ForStmt f -> {
+          this.writeVarint(FOR_STMT);
+          this.writeStmt(f.init);
+          this.writeStmt(f.cond);
+          this.writeExpr(f.post);
+          this.writeStmt(f.body);
+        }
+        case Stmt.BlockStmt b -> {
+          this.writeVarint(BLOCK_STMT);
+          this.writeStmts(b.stmts);
+        }
+        default -> throw new Error("Non-exhaustive check");
+      }
+    }
+
+    private void writeFunction(Stmt.FuncStmt func) {
+      this.writeToken(func.name);
+      this.writeVarint(func.params.size());
+      for (Token param : func.params) {
+        this.writeToken(param);
+      }
+      this.writeStmts(func.body.stmts);
+    }
+
+    private void writeStmts(List<Stmt> stmts) {
+      this.writeVarint(stmts.size());
+      for (Stmt stmt : stmts) {
+        this.writeStmt(stmt);
+      }
+    }
+
+    private void writeExpr(Expr expr) {
+      switch (expr) {
+        case null -> this.writeVarint(NONE);
+        case Expr.Binary b -> {
+          this.writeVarint(BINARY);
+          this.writeExpr(b.left);
+          this.writeToken(b.op);
+          this.writeExpr(b.right);
+        }
+        case Expr.Unary u -> {
+          this.writeVarint(UNARY);
+          this.writeToken(u.op);
+          this.writeExpr(u.inner);
+        }
+        case Expr.Literal l -> {
+          this.writeVarint(LITERAL);
+          this.writeToken(l.value);
+        }
+        case Expr.Variable v -> {
+          this.writeVarint(VARIABLE);
+          this.writeToken(v.var);
+        }
+        case Expr.Grouping g -> {
+          this.writeVarint(GROUPING);
+          this.writeExpr(g.inner);
+        }
+        case Expr.Call c -> {
+          this.writeVarint(CALL);
+          this.writeExpr(c.callee);
+          this.writeExprs(c.params);
+        }
+        case Expr.Get g -> {
+          this.writeVarint(GET);
+          this.writeExpr(g.object);
+          this.writeToken(g.property);
+        }
+        case Expr.Set s -> {
+          this.writeVarint(SET);
+          this.writeExpr(s.object);
+          this.writeToken(s.property);
+          this.writeExpr(s.value);
+        }
+        case Expr.SuperCall s -> {
+          this.writeVarint(SUPER_CALL);
+          this.writeExprs(s.params);
+        }
+        case Expr.SuperGet s -> {
+          this.writeVarint(SUPER_GET);
+          this.writeToken(s.member);
+        }
+        case Expr.This t -> this.writeVarint(THIS);
+        default -> throw new Error("Non-exhaustive check");
+      }
+    }
+
+    private void writeExprs(List<Expr> exprs) {
+      this.writeVarint(exprs.size());
+      for (Expr expr : exprs) {
+        this.writeExpr(expr);
+      }
+    }
+
+    private void writeOptionalToken(Token token) {
+      this.writeVarint(token == null ? 0 : 1);
+      if (token != null) {
+        this.writeToken(token);
+      }
+    }
+
+    private void writeToken(Token token) {
+      this.writeVarint(token.type.ordinal());
+      this.writeString(token.lexeme());
+      switch (token.literal) {
+        case null -> this.writeVarint(NO_LITERAL);
+        case Double d -> {
+          this.writeVarint(NUMBER_LITERAL);
+          this.out.writeBytes(ByteBuffer.allocate(8).putDouble(d).array());
+        }
+        case String s -> {
+          this.writeVarint(STRING_LITERAL);
+          this.writeString(s);
+        }
+        case Boolean b -> this.writeVarint(b ? TRUE_LITERAL : FALSE_LITERAL);
+        default -> throw new Error(String.format("Unreachable: Unexpected literal type"));
+      }
+      this.writeVarint(token.startOffset);
+      this.writeVarint(token.endOffset - token.startOffset);
+    }
+
+    private void writeString(String s) {
+      Integer index = this.strings.get(s);
+      if (index == null) {
+        index = this.stringTable.size();
+        this.strings.put(s, index);
+        this.stringTable.add(s);
+      }
+      this.writeVarint(index);
+    }
+
+    private void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        this.out.write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      this.out.write(value);
+    }
+  }
+
+  private static class Reader {
+    private final ByteBuffer in;
+    private String[] strings;
+
+    Reader(ByteBuffer in) {
+      this.in = in;
+    }
+
+    List<Stmt> read() throws IOException {
+      if (this.in.remaining() < 8 || this.in.getInt() != MAGIC) {
+        throw new IOException("Not a serialized syntax tree");
+      }
+      final int version = this.in.getInt();
+      if (version != VERSION) {
+        throw new IOException(String.format("Unsupported syntax tree version %s, expected %s", version, VERSION));
+      }
+      this.strings = new String[this.readCount()];
+      for (int i = 0; i < this.strings.length; ++i) {
+        final byte[] bytes = new byte[this.readCount()];
+        this.in.get(bytes);
+        // Interned like the names from the scanner, see `Interner`
+        this.strings[i] = new String(bytes, StandardCharsets.UTF_8).intern();
+      }
+      return this.readStmts();
+    }
+
+    private List<Stmt> readStmts() throws IOException {
+      final int count = this.readCount();
+      final List<Stmt> stmts = new ArrayList<>(count);
+      for (int i = 0; i < count; ++i) {
+        stmts.add(this.readStmt());
+      }
+      return stmts;
+    }
+
+    private Stmt readStmt() throws IOException {
+      final int tag = this.readVarint();
+      return switch (tag) {
+        case NONE -> null;
+        case EXPR_STMT -> new Stmt.ExprStmt(this.readExpr());
+        case PRINT_STMT -> new Stmt.PrintStmt(this.readExpr());
+        case RETURN_STMT -> new Stmt.ReturnStmt(this.readExpr());
+        case DECL_STMT -> {
+          final Token id = this.readToken();
+          yield new Stmt.DeclStmt(id, this.readExpr());
+        }
+        case FUNC_STMT -> this.readFunction();
+        case CLS_STMT -> {
+          final Token name = this.readToken();
+          final Token supercls = this.readVarint() == 0 ? null : this.readToken();
+          final int count = this.readCount();
+          final List<Stmt.FuncStmt> methods = new ArrayList<>(count);
+          for (int i = 0; i < count; ++i) {
+            methods.add(this.readFunction());
+          }
+          yield new Stmt.ClsStmt(name, supercls, methods);
+        }
+        case IF_STMT -> {
+          final Expr cond = this.readExpr();
+          final Stmt thenBranch = this.readStmt();
+          yield new Stmt.IfStmt(cond, thenBranch, this.readStmt());
+        }
+        case WHILE_STMT -> {
+          final Expr cond = this.readExpr();
+          yield new Stmt.WhileStmt(cond, this.readStmt());
+        }
+        case FOR_STMT -> {
+          final Stmt init = this.readStmt();
+          if (init != null && !(init instanceof Stmt.DeclStmt) && !(init instanceof Stmt.ExprStmt)) {
+            throw new IOException("Unexpected initializer of a for loop");
+          }
+          if (!(this.readStmt() instanceof Stmt.ExprStmt cond)) {
+            throw new IOException("Unexpected condition of a for loop");
+          }
+          final Expr post = this.readExpr();
+          yield new Stmt.ForStmt(init, cond, post, this.readStmt());
+        }
+        case BLOCK_STMT -> new Stmt.BlockStmt(this.readStmts());
+        default -> throw new IOException(String.format("Unexpected statement tag %s", tag));
+      };
+    }
+
+    private Stmt.FuncStmt readFunction() throws IOException {
+      final Token name = this.readToken();
+      final int count = this.readCount();
+      final List<Token> params = new ArrayList<>(count);
+      for (int i = 0; i < count; ++i) {
+        params.add(this.readToken());
+      }
+      return new Stmt.FuncStmt(name, params, new Stmt.BlockStmt(this.readStmts()));
+    }
+
+    private Expr readExpr() throws IOException {
+      final int tag = this.readVarint();
+      return switch (tag) {
+        case NONE -> null;
+        case BINARY -> {
+          final Expr left = this.readExpr();
+          final Token op = this.readToken();
+          // Assignments are binary expressions, see `Parser`
+          if (op.type == TokenType.EQUAL && !(left instanceof Expr.Variable)) {
+            throw new IOException("Unexpected assignment target");
+          }
+          yield new Expr.Binary(left, op, this.readExpr());
+        }
+        case UNARY -> {
+          final Token op = this.readToken();
+          yield new Expr.Unary(op, this.readExpr());
+        }
+        case LITERAL -> new Expr.Literal(this.readToken());
+        case VARIABLE -> new Expr.Variable(this.readToken());
+        case GROUPING -> new Expr.Grouping(this.readExpr());
+        case CALL -> {
+          final Expr callee = this.readExpr();
+          yield new Expr.Call(callee, this.readExprs());
+        }
+        case GET -> {
+          final Expr object = this.readExpr();
+          yield new Expr.Get(object, this.readToken());
+        }
+        case SET -> {
+          final Expr object = this.readExpr();
+          final Token property = this.readToken();
+          yield new Expr.Set(object, property, this.readExpr());
+        }
+        case SUPER_CALL -> new Expr.SuperCall(this.readExprs());
+        case SUPER_GET -> new Expr.SuperGet(this.readToken());
+        case THIS -> new Expr.This();
+        default -> throw new IOException(String.format("Unexpected expression tag %s", tag));
+      };
+    }
+
+    private List<Expr> readExprs() throws IOException {
+      final int count = this.readCount();
+      final List<Expr> exprs = new ArrayList<>(count);
+      for (int i = 0; i < count; ++i) {
+        exprs.add(this.readExpr());
+      }
+      return exprs;
+    }
+
+    private Token readToken() throws IOException {
+      final TokenType type = TOKEN_TYPES[this.readIndex(TOKEN_TYPES.length)];
+      final String lexeme = this.strings[this.readIndex(this.strings.length)];
+      final int literalTag = this.readVarint();
+      final Object literal = switch (literalTag) {
+        case NO_LITERAL -> null;
+        case NUMBER_LITERAL -> this.in.getDouble();
+        // Strings are compared by reference (see `ValueUtils.equals`), every
+        // literal gets its own String like with the scanner
+        case STRING_LITERAL -> new String(this.strings[this.readIndex(this.strings.length)]);
+        case FALSE_LITERAL -> false;
+        case TRUE_LITERAL -> true;
+        default -> throw new IOException(String.format("Unexpected literal tag %s", literalTag));
+      };
+      final int startOffset = this.readVarint();
+      return new Token(type, lexeme, literal, startOffset, startOffset + this.readVarint());
+    }
+
+    // The count of the elements of a list, every element takes at least a
+    // byte
+    private int readCount() throws IOException {
+      final int count = this.readVarint();
+      if (count > this.in.remaining()) {
+        throw new IOException(String.format("Count %s exceeds the %s remaining bytes", count, this.in.remaining()));
+      }
+      return count;
+    }
+
+    private int readIndex(int size) throws IOException {
+      final int index = this.readVarint();
+      if (index >= size) {
+        throw new IOException(String.format("Index %s out of a table of %s", index, size));
+      }
+      return index;
+    }
+
+    // Never negative
+    private int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0;; shift += 7) {
+        final byte b = this.in.get();
+        if (shift == 28 && (b & 0xf8) != 0) {
+          throw new IOException("Varint out of range");
+        }
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+  }
+}
@@ -2,7 +2,14 @@ package com.lox.ast;
 
 import java.util.List;
 
+import com.lox.object.InlineCache;
+import com.lox.object.LoxObject;
+
 public abstract class Expr extends SyntaxNode {
+  // Filled in by the resolver: whether the expression always evaluates to a
+  // Number (unless it throws), so that it can be evaluated unboxed
+  public boolean numeric = false;
+
   public static class Binary extends Expr {
     public final Expr left;
     public final Token op;
@@ -28,6 +35,9 @@ public abstract class Expr extends SyntaxNode {
   public static class Literal extends Expr {
     public final Token value;
 
+    // The value of the literal, created upon the first evaluation
+    public LoxObject constant = null;
+
     public Literal(Token value) {
       this.value = value;
     }
@@ -36,6 +46,11 @@ public abstract class Expr extends SyntaxNode {
   public static class Variable extends Expr {
     public final Token var;
 
+    // Filled in by the resolver: the number of scopes to walk up and the slot
+    // inside that scope. A depth of -1 means the variable is a global
+    public int depth = -1;
+    public int slot = -1;
+
     public Variable(Token var) {
       this.var = var;
     }
@@ -53,6 +68,11 @@ public abstract class Expr extends SyntaxNode {
     public final Expr callee;
     public final List<Expr> params;
 
+    // Filled in by the inliner for the tree walker: the function whose
+    // returned expression is evaluated in place of a regular call of the
+    // callee, as long as the callee turns out to be this function
+    public Stmt.FuncStmt inlined = null;
+
     public Call(Expr callee, List<Expr> params) {
       this.callee = callee;
       this.params = params;
@@ -63,6 +83,8 @@ public abstract class Expr extends SyntaxNode {
     public final Expr object;
     public final Token property;
 
+    public final InlineCache cache = new InlineCache();
+
     public Get(Expr object, Token property) {
       this.object = object;
       this.property = property;
@@ -74,6 +96,8 @@ public abstract class Expr extends SyntaxNode {
     public final Token property;
     public final Expr value;
 
+    public final InlineCache cache = new InlineCache();
+
     public Set(Expr object, Token property, Expr value) {
       this.object = object;
       this.property = property;
@@ -84,6 +108,10 @@ public abstract class Expr extends SyntaxNode {
   public static class SuperCall extends Expr {
     public final List<Expr> params;
 
+    // Depth of the `this` scope of the enclosing method, `super` lives in the
+    // scope right above it. -1 if not inside a method
+    public int depth = -1;
+
     public SuperCall(List<Expr> params) {
       this.params = params;
     }
@@ -92,11 +120,17 @@ public abstract class Expr extends SyntaxNode {
   public static class SuperGet extends Expr {
     public final Token member;
 
+    // Same as SuperCall.depth
+    public int depth = -1;
+
     public SuperGet(Token member) {
       this.member = member;
     }
   }
 
   public static class This extends Expr {
+    // Depth of the `this` scope of the enclosing method, -1 if not inside a
+    // method
+    public int depth = -1;
   }
 }
@@ -31,6 +31,9 @@ public abstract class Stmt extends SyntaxNode {
     public final Token id;
     public final Expr expr;
 
+    // Slot of the variable in the current scope, -1 if it is a global
+    public int slot = -1;
+
     public DeclStmt(Token id, Expr expr) {
       this.id = id;
       this.expr = expr;
@@ -42,6 +45,11 @@ public abstract class Stmt extends SyntaxNode {
     public final List<Token> params;
     public final BlockStmt body;
 
+    // Slot of the function name in the current scope, -1 if it is a global
+    public int slot = -1;
+    // First parameter name that appears twice, if any
+    public String redeclaredParam = null;
+
     public FuncStmt(Token name, List<Token> params, BlockStmt body) {
       this.name = name;
       this.params = params;
@@ -54,6 +62,12 @@ public abstract class Stmt extends SyntaxNode {
     public final Token supercls;
     public final List<FuncStmt> methods;
 
+    // Slot of the class name in the current scope, -1 if it is a global
+    public int slot = -1;
+    // Location of the superclass, a depth of -1 means it is a global
+    public int superclsDepth = -1;
+    public int superclsSlot = -1;
+
     public ClsStmt(Token name, Token supercls, List<FuncStmt> methods) {
       this.name = name;
       this.supercls = supercls;
@@ -101,6 +115,11 @@ public abstract class Stmt extends SyntaxNode {
   public static class BlockStmt extends Stmt {
     public final List<Stmt> stmts;
 
+    // Filled in by the resolver: the number of identifiers declared directly
+    // in this block and the first identifier declared twice, if any
+    public int scopeSize = 0;
+    public String redeclared = null;
+
     public BlockStmt(List<Stmt> stmts) {
       this.stmts = stmts;
     }
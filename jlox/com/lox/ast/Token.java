@@ -1,13 +1,18 @@
 package com.lox.ast;
 
+import com.lox.Symbol;
+
 public class Token {
   public final TokenType type;
-  public final String lexeme;
   public final Object literal; // value of `lexeme` interpreted as `type` in the program
 
   public final int startOffset;
   public final int endOffset;
 
+  private final String lexeme;
+  // Null until `symbol()` interns the lexeme, unless the scanner did
+  private Symbol symbol;
+
   public Token(TokenType type, String lexeme, Object literal, int startOffset, int endOffset) {
     this.type = type;
     this.lexeme = lexeme;
@@ -15,4 +20,26 @@ public class Token {
     this.startOffset = startOffset;
     this.endOffset = endOffset;
   }
+
+  public Token(TokenType type, Symbol symbol, Object literal, int startOffset, int endOffset) {
+    this(type, symbol.name, literal, startOffset, endOffset);
+    this.symbol = symbol;
+  }
+
+  // A token of a type with a fixed lexeme (see `TokenType.lexeme`), which
+  // is shared rather than copied from the source
+  public Token(TokenType type, int startOffset, int endOffset) {
+    this(type, type.lexeme, null, startOffset, endOffset);
+  }
+
+  public String lexeme() {
+    return this.lexeme;
+  }
+
+  public Symbol symbol() {
+    if (this.symbol == null) {
+      this.symbol = Symbol.of(this.lexeme());
+    }
+    return this.symbol;
+  }
 }
@@ -0,0 +1,117 @@
+package com.lox.object;
+
+import com.lox.InterpreterException;
+import com.lox.Symbol;
+
+// A per-site cache of property lookups for `object.property` and
+// `object.property = value`, keyed by the shape of the object.
+//
+// A shape belongs to exactly one class, so it determines both the slot of a
+// field and the method found by walking the class hierarchy, and neither can
+// change for a given shape. After `MAX_ENTRIES` different shapes are seen, the
+// site is considered megamorphic and the cache is bypassed.
+public class InlineCache {
+  public static final int MAX_ENTRIES = 4;
+
+  private Shape[] shapes = null;
+  // Get: the slot of the field, or -1 if the property is a method
+  // Set: the slot of the field, which may not exist yet in the shape
+  private int[] indices = null;
+  // Get: the unbound method (or nil) if the property is not a field
+  private LoxObject[] methods = null;
+  // Set: the shape after adding the field, null if the field already exists
+  private Shape[] nextShapes = null;
+  private int size = 0;
+  private boolean megamorphic = false;
+
+  public LoxObject get(LoxObject obj, Symbol prop) throws InterpreterException {
+    final Shape shape = obj.shape();
+    for (int i = 0; i < this.size; ++i) {
+      if (this.shapes[i] == shape) {
+        final int index = this.indices[i];
+        return index != -1 ? obj.getField(index) : obj.bindMethod(this.methods[i]);
+      }
+    }
+    if (this.megamorphic) {
+      return obj.get(prop);
+    }
+
+    final int index = shape.indexOf(prop);
+    if (index != -1) {
+      this.record(shape, index, null, null);
+      return obj.getField(index);
+    }
+    final LoxObject method = obj.cls().lookupMethod(prop);
+    this.record(shape, -1, method, null);
+    return obj.bindMethod(method);
+  }
+
+  // Return the unbound method (or nil) found for `prop`, null if `prop` is a
+  // field of `obj`
+  public LoxObject getMethod(LoxObject obj, Symbol prop) throws InterpreterException {
+    final Shape shape = obj.shape();
+    for (int i = 0; i < this.size; ++i) {
+      if (this.shapes[i] == shape) {
+        return this.indices[i] != -1 ? null : this.methods[i];
+      }
+    }
+
+    final int index = shape.indexOf(prop);
+    if (index != -1) {
+      if (!this.megamorphic) {
+        this.record(shape, index, null, null);
+      }
+      return null;
+    }
+    final LoxObject method = obj.cls().lookupMethod(prop);
+    if (!this.megamorphic) {
+      this.record(shape, -1, method, null);
+    }
+    return method;
+  }
+
+  public void set(LoxObject obj, Symbol prop, LoxObject value) throws InterpreterException {
+    final Shape shape = obj.shape();
+    for (int i = 0; i < this.size; ++i) {
+      if (this.shapes[i] == shape) {
+        if (this.nextShapes[i] == null) {
+          obj.setField(this.indices[i], value);
+        } else {
+          obj.addField(this.nextShapes[i], value);
+        }
+        return;
+      }
+    }
+
+    // Immutable objects throw here, so they never end up in the cache
+    obj.set(prop, value);
+    if (this.megamorphic) {
+      return;
+    }
+    final Shape nextShape = obj.shape();
+    this.record(shape, nextShape.indexOf(prop), null, nextShape == shape ? null : nextShape);
+  }
+
+  private void record(Shape shape, int index, LoxObject method, Shape nextShape) {
+    if (this.size == MAX_ENTRIES) {
+      this.megamorphic = true;
+      this.shapes = null;
+      this.indices = null;
+      this.methods = null;
+      this.nextShapes = null;
+      this.size = 0;
+      return;
+    }
+    if (this.shapes == null) {
+      this.shapes = new Shape[MAX_ENTRIES];
+      this.indices = new int[MAX_ENTRIES];
+      this.methods = new LoxObject[MAX_ENTRIES];
+      this.nextShapes = new Shape[MAX_ENTRIES];
+    }
+    this.shapes[this.size] = shape;
+    this.indices[this.size] = index;
+    this.methods[this.size] = method;
+    this.nextShapes[this.size] = nextShape;
+    this.size += 1;
+  }
+}
@@ -1,14 +1,14 @@
 package com.lox.object;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.lox.Interpreter;
 import com.lox.InterpreterException;
 import com.lox.SpecialSymbols;
+import com.lox.Symbol;
 import com.lox.object.LoxObject;
+import com.lox.utils.IntMap;
 import com.lox.utils.Pair;
 
 public class LoxClass extends LoxObject {
@@ -16,15 +16,21 @@ public class LoxClass extends LoxObject {
 
   public final String name;
   public final LoxClass supercls;
-  public final Map<String, LoxFunction> methods;
+  // Keyed by the id of their symbol
+  public final IntMap<LoxFunction> methods;
+  // The shape of objects of this class without any field, all the shapes of
+  // these objects are reached from here
+  public final Shape rootShape = new Shape();
+  // Looked up upon the first call, the methods of a class never change
+  private LoxObject constructor = null;
 
   public LoxClass(String name, List<LoxFunction> methods) {
     super();
     this.name = name;
     this.supercls = LoxObject.OBJECT;
-    this.methods = new HashMap<>();
+    this.methods = new IntMap<>();
     for (LoxFunction method : methods) {
-      this.methods.put(method.name(), method);
+      this.methods.put(Symbol.of(method.name()).id, method);
     }
   }
 
@@ -32,12 +38,28 @@ public class LoxClass extends LoxObject {
     super();
     this.name = name;
     this.supercls = supercls;
-    this.methods = new HashMap<>();
+    this.methods = new IntMap<>();
     for (LoxFunction method : methods) {
-      this.methods.put(method.name(), method);
+      this.methods.put(Symbol.of(method.name()).id, method);
     }
   }
 
+  // Create a blank object of this class, without calling its constructor
+  public LoxObject instantiate() {
+    final LoxClass cls = this;
+    return new LoxObject() {
+      @Override
+      public String toString() {
+        return String.format("<instance %s>", this.cls().name);
+      }
+
+      @Override
+      public LoxClass cls() {
+        return cls;
+      }
+    };
+  }
+
   public boolean isSubclass(LoxClass cls) {
     if (cls == this || cls == LoxObject.OBJECT)
       return true;
@@ -55,18 +77,20 @@ public class LoxClass extends LoxObject {
     return this == cls || cls.isSubclass(this);
   }
 
-  public LoxObject lookupOwnMethod(String name) {
-    final LoxFunction res = this.methods.getOrDefault(name, null);
-    if (res == null) {
-      return LoxNil.NIL;
+  public LoxObject lookupOwnMethod(Symbol name) {
+    final LoxFunction res = this.methods.get(name.id);
+    return res == null ? LoxNil.NIL : res;
+  }
+
+  // The constructor of this class or of its closest superclass, `NIL` if none
+  public LoxObject constructor() {
+    if (this.constructor == null) {
+      this.constructor = this.lookupMethod(SpecialSymbols.CONSTRUCTOR);
     }
-    final Map<String, LoxObject> symbols = new HashMap<>();
-    symbols.put(SpecialSymbols.THIS_CLASS, this);
-    symbols.put(SpecialSymbols.SUPER_CLASS, this.supercls);
-    return res.concatEnv(symbols);
+    return this.constructor;
   }
 
-  public LoxObject lookupMethod(String name) {
+  public LoxObject lookupMethod(Symbol name) {
     LoxObject res = LoxNil.NIL;
     LoxClass curCls = this;
     while (res == LoxNil.NIL && curCls != LoxObject.OBJECT) {
@@ -76,7 +100,7 @@ public class LoxClass extends LoxObject {
     return res == LoxNil.NIL ? LoxObject.OBJECT.lookupOwnMethod(name) : res;
   }
 
-  public LoxObject lookupMethod(String name, LoxClass startCls) {
+  public LoxObject lookupMethod(Symbol name, LoxClass startCls) {
     if (!this.isSubclass(startCls)) {
       throw new Error("Lookup method must start from a superclass");
     }
@@ -2,12 +2,10 @@ package com.lox.object;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import com.lox.Environment;
 import com.lox.Interpreter;
 import com.lox.InterpreterException;
-import com.lox.NonLocalJump;
 import com.lox.ast.Stmt.FuncStmt;
 
 public abstract class LoxFunction extends LoxObject {
@@ -19,7 +17,11 @@ public abstract class LoxFunction extends LoxObject {
 
   public abstract Environment env();
 
-  public abstract LoxFunction concatEnv(Map<String, LoxObject> symbols);
+  // The function to call when accessed as a method of `receiver`, foreign
+  // functions do not use `this`
+  public LoxObject bind(LoxObject receiver) {
+    return this;
+  }
 
   @Override
   public LoxClass cls() {
@@ -50,11 +52,6 @@ public abstract class LoxFunction extends LoxObject {
     public Environment env() {
       return null;
     }
-
-    @Override
-    public LoxFunction concatEnv(Map<String, LoxObject> env) {
-      return this;
-    }
   }
 
   public static class LoxUserFunction extends LoxFunction {
@@ -73,7 +70,7 @@ public abstract class LoxFunction extends LoxObject {
 
     @Override
     public String name() {
-      return this.node.name.lexeme;
+      return this.node.name.lexeme();
     }
 
     @Override
@@ -86,15 +83,46 @@ public abstract class LoxFunction extends LoxObject {
       return this.node.params.size();
     }
 
+    @Override
+    public LoxObject bind(LoxObject receiver) {
+      return new LoxBoundMethod(receiver, this);
+    }
+
     @Override
     public String toString() {
-      return String.format("<function %s>", this.node.name.lexeme);
+      return String.format("<function %s>", this.node.name.lexeme());
+    }
+  }
+
+  // A method accessed through an object. The method's environment is the
+  // scope of its class, `receiver` is bound to `this` only when it's called
+  public static class LoxBoundMethod extends LoxFunction {
+    public final LoxObject receiver;
+    public final LoxUserFunction method;
+
+    public LoxBoundMethod(LoxObject receiver, LoxUserFunction method) {
+      this.receiver = receiver;
+      this.method = method;
+    }
+
+    @Override
+    public Environment env() {
+      return this.method.env();
+    }
+
+    @Override
+    public String name() {
+      return this.method.name();
+    }
+
+    @Override
+    public int arity() {
+      return this.method.arity();
     }
 
     @Override
-    public LoxFunction concatEnv(Map<String, LoxObject> symbols) {
-      final Environment env = new Environment(this.enclosingEnv, symbols);
-      return new LoxUserFunction(this.node, env);
+    public String toString() {
+      return this.method.toString();
     }
   }
 }
@@ -3,6 +3,7 @@ package com.lox.object;
 import java.util.ArrayList;
 
 import com.lox.InterpreterException;
+import com.lox.Symbol;
 
 public class LoxNil extends LoxObject {
   public final static LoxClass OBJECT = new LoxClass("Nil", LoxObject.OBJECT, new ArrayList<>());
@@ -23,7 +24,7 @@ public class LoxNil extends LoxObject {
   }
 
   @Override
-  public void set(String prop, LoxObject value) throws InterpreterException {
+  public void set(Symbol prop, LoxObject value) throws InterpreterException {
     throw new InterpreterException("Nil is immutable");
   }
 }
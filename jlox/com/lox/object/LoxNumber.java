@@ -3,6 +3,7 @@ package com.lox.object;
 import java.util.ArrayList;
 
 import com.lox.InterpreterException;
+import com.lox.Symbol;
 
 public class LoxNumber extends LoxObject {
   public static final LoxClass OBJECT = new LoxClass("Number", LoxObject.OBJECT, new ArrayList<>());
@@ -14,6 +15,32 @@ public class LoxNumber extends LoxObject {
     this.value = value;
   }
 
+  // Small integers are shared, similar to `Integer.valueOf`
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1024;
+  private static final LoxNumber[] CACHE = new LoxNumber[CACHE_HIGH - CACHE_LOW];
+  static {
+    for (int i = CACHE_LOW; i < CACHE_HIGH; ++i) {
+      CACHE[i - CACHE_LOW] = new LoxNumber(i);
+    }
+  }
+
+  public static LoxNumber valueOf(double value) {
+    final int intValue = (int) value;
+    // -0.0 is printed differently from 0.0, so it is not shared
+    if (intValue == value && intValue >= CACHE_LOW && intValue < CACHE_HIGH
+        && (intValue != 0 || Double.doubleToRawLongBits(value) == 0L)) {
+      return CACHE[intValue - CACHE_LOW];
+    }
+    return new LoxNumber(value);
+  }
+
+  // Whether `number` is one of the shared small integers
+  public static boolean isShared(LoxNumber number) {
+    final int intValue = (int) number.value;
+    return intValue >= CACHE_LOW && intValue < CACHE_HIGH && CACHE[intValue - CACHE_LOW] == number;
+  }
+
   @Override
   public LoxClass cls() {
     return LoxNumber.OBJECT;
@@ -25,7 +52,7 @@ public class LoxNumber extends LoxObject {
   }
 
   @Override
-  public void set(String prop, LoxObject value) throws InterpreterException {
+  public void set(Symbol prop, LoxObject value) throws InterpreterException {
     throw new InterpreterException("Number is immutable");
   }
 }
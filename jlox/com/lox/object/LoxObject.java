@@ -1,20 +1,24 @@
 package com.lox.object;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.lox.InterpreterException;
 import com.lox.SpecialSymbols;
+import com.lox.Symbol;
 import com.lox.utils.Pair;
 
 public abstract class LoxObject {
   public static final LoxClass OBJECT = new LoxClass("Object", new ArrayList<>());
 
-  private Map<String, LoxObject> fields;
+  // Fields are stored in `fieldValues` at the slots given by `shape`. Both are
+  // allocated upon the first `set`, so immutable primitives never carry them
+  private Shape shape = null;
+  private LoxObject[] fieldValues = null;
 
   public LoxObject() {
-    this.fields = new HashMap<>();
   }
 
   public abstract LoxClass cls();
@@ -25,38 +29,69 @@ public abstract class LoxObject {
     return this.cls().isSubclass(cls);
   }
 
-  public LoxObject get(String prop) throws InterpreterException {
-    if (this.fields.containsKey(prop)) {
-      return this.fields.get(prop);
+  public LoxObject get(Symbol prop) throws InterpreterException {
+    if (this.shape != null) {
+      final int index = this.shape.indexOf(prop);
+      if (index != -1) {
+        return this.fieldValues[index];
+      }
     }
     return this.getMethod(prop);
   }
 
-  public void set(String prop, LoxObject value) throws InterpreterException {
-    this.fields.put(prop, value);
+  public void set(Symbol prop, LoxObject value) throws InterpreterException {
+    final Shape shape = this.shape();
+    final int index = shape.indexOf(prop);
+    if (index == -1) {
+      this.addField(shape.withField(prop), value);
+    } else {
+      this.fieldValues[index] = value;
+    }
+  }
+
+  // Objects without any field have the root shape of their class
+  public Shape shape() {
+    return this.shape != null ? this.shape : this.cls().rootShape;
+  }
+
+  public LoxObject getField(int index) {
+    return this.fieldValues[index];
+  }
+
+  public void setField(int index, LoxObject value) {
+    this.fieldValues[index] = value;
   }
 
-  public LoxObject getMethod(String prop) throws InterpreterException {
-    final LoxObject res = this.cls().lookupMethod(prop);
-    if (res == LoxNil.NIL) {
-      return res;
+  // `shape` must be the current shape with exactly one more field
+  public void addField(Shape shape, LoxObject value) {
+    final int index = shape.size() - 1;
+    if (this.fieldValues == null) {
+      this.fieldValues = new LoxObject[4];
+    } else if (index == this.fieldValues.length) {
+      this.fieldValues = Arrays.copyOf(this.fieldValues, index * 2);
     }
-    final Map<String, LoxObject> symbols = new HashMap<>();
-    symbols.put(SpecialSymbols.THIS_OBJECT, this);
-    return ((LoxFunction) res).concatEnv(symbols);
+    this.shape = shape;
+    this.fieldValues[index] = value;
   }
 
-  public LoxObject getMethod(String prop, LoxClass startCls) throws InterpreterException {
+  // Bind a method looked up from the class to this object, see
+  // `LoxFunction.bind`
+  public LoxObject bindMethod(LoxObject method) {
+    if (method instanceof LoxFunction f) {
+      return f.bind(this);
+    }
+    return method;
+  }
+
+  public LoxObject getMethod(Symbol prop) throws InterpreterException {
+    return this.bindMethod(this.cls().lookupMethod(prop));
+  }
+
+  public LoxObject getMethod(Symbol prop, LoxClass startCls) throws InterpreterException {
     if (!this.cls().isSubclass(startCls)) {
       throw new Error("Lookup method must start from a superclass");
     }
 
-    final LoxObject res = this.cls().lookupMethod(prop, startCls);
-    if (res == LoxNil.NIL) {
-      return res;
-    }
-    final Map<String, LoxObject> symbols = new HashMap<>();
-    symbols.put(SpecialSymbols.THIS_OBJECT, this);
-    return ((LoxFunction) res).concatEnv(symbols);
+    return this.bindMethod(this.cls().lookupMethod(prop, startCls));
   }
 }
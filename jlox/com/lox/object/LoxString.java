@@ -3,6 +3,7 @@ package com.lox.object;
 import java.util.ArrayList;
 
 import com.lox.InterpreterException;
+import com.lox.Symbol;
 
 public class LoxString extends LoxObject {
   public static final LoxClass OBJECT = new LoxClass("String", LoxObject.OBJECT, new ArrayList<>());
@@ -25,7 +26,7 @@ public class LoxString extends LoxObject {
   }
 
   @Override
-  public void set(String prop, LoxObject value) throws InterpreterException {
+  public void set(Symbol prop, LoxObject value) throws InterpreterException {
     throw new InterpreterException("String is immutable");
   }
 }
@@ -0,0 +1,136 @@
+package com.lox.object;
+
+import java.util.Arrays;
+
+import com.lox.Symbol;
+import com.lox.utils.IntMap;
+
+// The layout of the fields of an object (also known as a hidden class): which
+// field lives in which slot of the object's field array.
+//
+// Objects of the same class that add fields in the same order share the same
+// shape. Shapes form a tree rooted at the empty shape of each class, and the
+// transitions of this tree are cached, so adding a field only allocates a new
+// shape the first time any object of the class goes down that path.
+//
+// Fields are keyed by the id of their symbol. The ids of the fields by slot
+// are shared down a path of the tree rather than copied for every shape, see
+// `FieldIds`.
+public class Shape {
+  // Up to this many fields, `indexOf` scans the ids of the fields, larger
+  // shapes look them up in `table`
+  private static final int MAX_SCANNED_FIELDS = 8;
+
+  private final FieldIds fields;
+  private final int size;
+  // Open addressing with linear probing, pairs of a field id & its slot + 1
+  // (0 if the entry is empty). Built upon the first `indexOf` of a large shape
+  private int[] table = null;
+  // Keyed by the id of the field added, null until the first transition
+  private IntMap<Shape> transitions = null;
+
+  Shape() {
+    this.fields = new FieldIds(new int[4], 0);
+    this.size = 0;
+  }
+
+  private Shape(Shape parent, Symbol field) {
+    FieldIds fields = parent.fields;
+    if (fields.length != parent.size) {
+      // Another child of the parent already appended to the ids, this one
+      // starts a new branch
+      fields = new FieldIds(Arrays.copyOf(fields.ids, Math.max(parent.size * 2, 4)), parent.size);
+    }
+    fields.append(field.id);
+    this.fields = fields;
+    this.size = parent.size + 1;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  // Return the slot of `field`, -1 if the shape does not have it
+  public int indexOf(Symbol field) {
+    final int id = field.id;
+    if (this.size <= MAX_SCANNED_FIELDS) {
+      final int[] ids = this.fields.ids;
+      for (int i = 0; i < this.size; ++i) {
+        if (ids[i] == id) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    if (this.table == null) {
+      this.table = this.buildTable();
+    }
+    final int mask = (this.table.length >> 1) - 1;
+    for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+      final int slot = this.table[2 * i + 1];
+      if (slot == 0 || this.table[2 * i] == id) {
+        return slot - 1;
+      }
+    }
+  }
+
+  // Return the shape after adding `field`, which is at slot `size()`
+  public Shape withField(Symbol field) {
+    if (this.transitions == null) {
+      this.transitions = new IntMap<>();
+    }
+    Shape next = this.transitions.get(field.id);
+    if (next == null) {
+      next = new Shape(this, field);
+      this.transitions.put(field.id, next);
+    }
+    return next;
+  }
+
+  // At most half full
+  private int[] buildTable() {
+    int capacity = 16;
+    while (capacity < this.size * 2) {
+      capacity *= 2;
+    }
+    final int[] table = new int[capacity * 2];
+    final int mask = capacity - 1;
+    for (int slot = 0; slot < this.size; ++slot) {
+      int i = hash(this.fields.ids[slot]) & mask;
+      while (table[2 * i + 1] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[2 * i] = this.fields.ids[slot];
+      table[2 * i + 1] = slot + 1;
+    }
+    return table;
+  }
+
+  // Same as `IntMap.hash`
+  private static int hash(int key) {
+    final int h = key * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  // The ids of the fields by slot, shared by the shapes of a path from the
+  // root: a shape only reads the first `size` ids, and a child appends its
+  // field in place if it's the first child of its parent to add one
+  private static class FieldIds {
+    int[] ids;
+    // The number of ids appended so far
+    int length;
+
+    FieldIds(int[] ids, int length) {
+      this.ids = ids;
+      this.length = length;
+    }
+
+    void append(int id) {
+      if (this.length == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, this.length * 2);
+      }
+      this.ids[this.length++] = id;
+    }
+  }
+}
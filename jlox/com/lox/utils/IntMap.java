@@ -0,0 +1,123 @@
+package com.lox.utils;
+
+import java.util.Arrays;
+
+// A map from int keys to non-null values, without boxing the keys: an
+// open-addressing hash table with linear probing, kept at most half full.
+// Entries cannot be removed.
+public class IntMap<V> {
+  private int[] keys;
+  // A null value marks an empty slot
+  private Object[] values;
+  private int size = 0;
+
+  public IntMap() {
+    this.keys = new int[8];
+    this.values = new Object[8];
+  }
+
+  public IntMap(IntMap<V> other) {
+    this.keys = Arrays.copyOf(other.keys, other.keys.length);
+    this.values = Arrays.copyOf(other.values, other.values.length);
+    this.size = other.size;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  // Return null if `key` is absent
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    final int mask = this.keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      final Object value = this.values[i];
+      if (value == null || this.keys[i] == key) {
+        return (V) value;
+      }
+    }
+  }
+
+  public boolean containsKey(int key) {
+    return this.get(key) != null;
+  }
+
+  // Return the previous value of `key`, null if it was absent
+  public V put(int key, V value) {
+    return this.insert(key, value, true);
+  }
+
+  // Return the current value of `key`, null if it was absent and `value` was
+  // inserted
+  public V putIfAbsent(int key, V value) {
+    return this.insert(key, value, false);
+  }
+
+  // Return the previous value of `key`, null if it is absent, in which case
+  // `value` is not inserted
+  @SuppressWarnings("unchecked")
+  public V replace(int key, V value) {
+    assert value != null;
+
+    final int mask = this.keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      final Object current = this.values[i];
+      if (current == null) {
+        return null;
+      }
+      if (this.keys[i] == key) {
+        this.values[i] = value;
+        return (V) current;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V insert(int key, V value, boolean replace) {
+    assert value != null;
+
+    final int mask = this.keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      final Object current = this.values[i];
+      if (current == null) {
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (++this.size * 2 > this.keys.length) {
+          this.grow();
+        }
+        return null;
+      }
+      if (this.keys[i] == key) {
+        if (replace) {
+          this.values[i] = value;
+        }
+        return (V) current;
+      }
+    }
+  }
+
+  private void grow() {
+    final int[] oldKeys = this.keys;
+    final Object[] oldValues = this.values;
+    this.keys = new int[oldKeys.length * 2];
+    this.values = new Object[oldValues.length * 2];
+    final int mask = this.keys.length - 1;
+    for (int j = 0; j < oldKeys.length; ++j) {
+      if (oldValues[j] == null) {
+        continue;
+      }
+      int i = hash(oldKeys[j]) & mask;
+      while (this.values[i] != null) {
+        i = (i + 1) & mask;
+      }
+      this.keys[i] = oldKeys[j];
+      this.values[i] = oldValues[j];
+    }
+  }
+
+  // Mix the bits of `key`, so that keys sharing their low bits do not collide
+  private static int hash(int key) {
+    final int h = key * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
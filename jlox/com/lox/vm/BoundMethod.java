@@ -0,0 +1,37 @@
+package com.lox.vm;
+
+import com.lox.Environment;
+import com.lox.object.LoxFunction;
+import com.lox.object.LoxObject;
+
+// A method accessed through an object, `receiver` goes to the slot of `this`
+// when it's called
+public class BoundMethod extends LoxFunction {
+  public final LoxObject receiver;
+  public final Closure method;
+
+  public BoundMethod(LoxObject receiver, Closure method) {
+    this.receiver = receiver;
+    this.method = method;
+  }
+
+  @Override
+  public String name() {
+    return this.method.name();
+  }
+
+  @Override
+  public int arity() {
+    return this.method.arity();
+  }
+
+  @Override
+  public Environment env() {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return this.method.toString();
+  }
+}
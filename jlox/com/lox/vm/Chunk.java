@@ -0,0 +1,66 @@
+package com.lox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.lox.InterpreterException;
+import com.lox.Symbol;
+
+// A sequence of instruction words (see `OpCode`) and the constants they refer to:
+// LoxObject values, identifiers (Symbol), function prototypes, inline caches
+// and error messages (String)
+public class Chunk {
+  // The largest operand of an instruction word
+  public static final int MAX_OPERAND = 0xffffff;
+
+  public int[] code = new int[64];
+  public int count = 0;
+  public Object[] constants = null;
+
+  private final List<Object> constantList = new ArrayList<>();
+  // Identifiers are added once per chunk
+  private final Map<Symbol, Integer> names = new HashMap<>();
+
+  public void write(int word) {
+    if (this.count == this.code.length) {
+      this.code = Arrays.copyOf(this.code, this.count * 2);
+    }
+    this.code[this.count++] = word;
+  }
+
+  // Write the instruction `op` with its operand in the upper 24 bits
+  public void write(byte op, int operand) {
+    this.write(operand << 8 | op & 0xff);
+  }
+
+  public void patchOperand(int offset, int operand) {
+    this.code[offset] = operand << 8 | this.code[offset] & 0xff;
+  }
+
+  public int addConstant(Object value) throws InterpreterException {
+    if (this.constantList.size() == 0xffff) {
+      throw new InterpreterException("Too many constants in one chunk");
+    }
+    this.constantList.add(value);
+    return this.constantList.size() - 1;
+  }
+
+  public int addName(Symbol name) throws InterpreterException {
+    final Integer index = this.names.get(name);
+    if (index != null) {
+      return index;
+    }
+    final int newIndex = this.addConstant(name);
+    this.names.put(name, newIndex);
+    return newIndex;
+  }
+
+  // Called once all the code is written
+  public void seal() {
+    this.code = Arrays.copyOf(this.code, this.count);
+    this.constants = this.constantList.toArray();
+  }
+}
@@ -0,0 +1,40 @@
+package com.lox.vm;
+
+import com.lox.Environment;
+import com.lox.object.LoxFunction;
+import com.lox.object.LoxObject;
+
+public class Closure extends LoxFunction {
+  public final Prototype proto;
+  public final Upvalue[] upvalues;
+
+  public Closure(Prototype proto, Upvalue[] upvalues) {
+    this.proto = proto;
+    this.upvalues = upvalues;
+  }
+
+  @Override
+  public String name() {
+    return this.proto.name;
+  }
+
+  @Override
+  public int arity() {
+    return this.proto.arity;
+  }
+
+  @Override
+  public Environment env() {
+    return null;
+  }
+
+  @Override
+  public LoxObject bind(LoxObject receiver) {
+    return new BoundMethod(receiver, this);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("<function %s>", this.proto.name);
+  }
+}
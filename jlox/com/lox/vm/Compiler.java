@@ -0,0 +1,530 @@
+package com.lox.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lox.InterpreterException;
+import com.lox.SpecialSymbols;
+import com.lox.Symbol;
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.ast.TokenType;
+import com.lox.ast.Stmt.FuncStmt;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxString;
+
+// Compiles a resolved top-level statement into the bytecode of `VM`.
+//
+// Locals live on the VM stack, in the frame of the function declaring them.
+// The scopes pushed here mirror the scopes of `Resolver` one-to-one, so the
+// (depth, slot) of an identifier designates either a slot of the current
+// frame, a variable of an enclosing function (captured as an upvalue) or a
+// global. Like with environments, a scope reserves all of its slots upon
+// entering and a `null` slot is in the temporal deadzone.
+public class Compiler {
+  private static class FunctionState {
+    final FunctionState enclosing;
+    final Chunk chunk = new Chunk();
+    // (isLocal, index) of each upvalue, see `OpCode.CLOSURE`
+    final List<int[]> upvalues = new ArrayList<>();
+    // Slots taken by the open scopes of the function
+    int localCount = 0;
+    // Slots taken by the open scopes and the temporaries
+    int stackSize = 0;
+    int maxStack = 0;
+
+    FunctionState(FunctionState enclosing) {
+      this.enclosing = enclosing;
+    }
+  }
+
+  private static class Scope {
+    final FunctionState function;
+    // Slot of the scope's first variable in the frame of `function`
+    final int base;
+
+    Scope(FunctionState function, int base) {
+      this.function = function;
+      this.base = base;
+    }
+  }
+
+  // Where a resolved identifier lives
+  private static final int LOCAL = 0;
+  private static final int UPVALUE = 1;
+  private static final int GLOBAL = 2;
+
+  private static class Location {
+    final int kind;
+    // Slot for a local, upvalue index for an upvalue
+    final int index;
+    final Symbol name;
+
+    Location(int kind, int index, Symbol name) {
+      this.kind = kind;
+      this.index = index;
+      this.name = name;
+    }
+  }
+
+  private final List<Scope> scopes = new ArrayList<>();
+  private FunctionState function = null;
+
+  // The script leaves the value of `stmt` on the stack, see `OpCode.RESULT`
+  public Prototype compileScript(Stmt stmt) throws InterpreterException {
+    this.function = new FunctionState(null);
+    this.compileStmt(stmt, true);
+    this.emit(OpCode.RESULT, 1);
+    this.emit(OpCode.RETURN, -1);
+    final FunctionState script = this.function;
+    this.function = null;
+    script.chunk.seal();
+    return new Prototype("script", 0, script.chunk, 0, script.maxStack, null);
+  }
+
+  // Only the statements in tail position (`isTail`) can be the last statement
+  // executed, so only they record their value as the value of the script
+  private void compileStmt(Stmt stmt, boolean isTail) throws InterpreterException {
+    switch (stmt) {
+      case Stmt.PrintStmt p -> {
+        this.compileExpr(p.expr);
+        this.emit(OpCode.PRINT, -1);
+      }
+      case Stmt.ExprStmt e -> {
+        if (isTail) {
+          this.compileExpr(e.expr);
+          this.emit(OpCode.SET_RESULT, -1);
+        } else {
+          this.compileDiscarded(e.expr);
+        }
+      }
+      case Stmt.DeclStmt d -> {
+        if (d.expr == null) {
+          this.emit(OpCode.NIL, 1);
+        } else {
+          this.compileExpr(d.expr);
+        }
+        this.compileDefine(d.id.symbol(), d.slot);
+      }
+      case Stmt.IfStmt i -> {
+        this.compileExpr(i.cond);
+        final int elseJump = this.emitJump(OpCode.POP_JUMP_IF_FALSE, -1);
+        this.compileStmt(i.thenBranch, isTail);
+        final int endJump = this.emitJump(OpCode.JUMP, 0);
+        this.patchJump(elseJump);
+        if (i.elseBranch != null) {
+          this.compileStmt(i.elseBranch, isTail);
+        }
+        this.patchJump(endJump);
+      }
+      case Stmt.WhileStmt w -> {
+        final int loopStart = this.function.chunk.count;
+        this.compileExpr(w.cond);
+        final int exitJump = this.emitJump(OpCode.POP_JUMP_IF_FALSE, -1);
+        this.compileStmt(w.body, false);
+        this.emitLoop(loopStart);
+        this.patchJump(exitJump);
+      }
+      case Stmt.ForStmt f -> {
+        final boolean hasScope = f.init instanceof Stmt.DeclStmt;
+        if (hasScope) {
+          this.beginScope(1);
+        }
+        this.compileStmt(f.init, false);
+        final int loopStart = this.function.chunk.count;
+        this.compileExpr(f.cond.expr);
+        final int exitJump = this.emitJump(OpCode.POP_JUMP_IF_FALSE, -1);
+        this.compileStmt(f.body, false);
+        this.compileDiscarded(f.post);
+        this.emitLoop(loopStart);
+        this.patchJump(exitJump);
+        if (hasScope) {
+          this.endScope();
+        }
+      }
+      case Stmt.BlockStmt b -> this.compileBlock(b, isTail);
+      case Stmt.FuncStmt f -> {
+        this.compileFunction(f, false);
+        this.compileDefine(f.name.symbol(), f.slot);
+      }
+      case Stmt.ReturnStmt r -> {
+        this.compileExpr(r.expr);
+        if (this.function.enclosing == null) {
+          this.emitThrow("Cannot `return` outside a function body");
+        } else {
+          this.emit(OpCode.RETURN, -1);
+        }
+      }
+      case Stmt.ClsStmt c -> this.compileClass(c);
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  private void compileBlock(Stmt.BlockStmt block, boolean isTail) throws InterpreterException {
+    if (block.redeclared != null) {
+      this.emitThrow("Redeclared variable '" + block.redeclared + "'");
+    }
+    if (block.scopeSize > 0) {
+      this.beginScope(block.scopeSize);
+    }
+    for (int i = 0; i < block.stmts.size(); ++i) {
+      this.compileStmt(block.stmts.get(i), isTail && i == block.stmts.size() - 1);
+    }
+    if (block.scopeSize > 0) {
+      this.endScope();
+    }
+  }
+
+  // Emit the closure of `func`. The parameter scope is made of the arguments
+  // (preceded by the receiver for methods) already on the stack when the
+  // function is called
+  private void compileFunction(FuncStmt func, boolean isMethod) throws InterpreterException {
+    final FunctionState fn = new FunctionState(this.function);
+    this.function = fn;
+    final int paramCount = func.params.size() + (isMethod ? 1 : 0);
+    this.scopes.add(new Scope(fn, 0));
+    fn.localCount = paramCount;
+    this.adjustStack(paramCount);
+    // Thrown once the arity is checked, as by the other engines
+    if (func.redeclaredParam != null) {
+      this.emitThrow("Redeclared variable '" + func.redeclaredParam + "'");
+    }
+    this.compileBlock(func.body, false);
+    this.scopes.remove(this.scopes.size() - 1);
+    this.emit(OpCode.NIL, 1);
+    this.emit(OpCode.RETURN, -1);
+    this.function = fn.enclosing;
+
+    fn.chunk.seal();
+    final Prototype proto = new Prototype(func.name.lexeme(), func.params.size(), fn.chunk, fn.upvalues.size(),
+        fn.maxStack, func);
+    this.emit(OpCode.CLOSURE, this.function.chunk.addConstant(proto), 1);
+    for (int[] upvalue : fn.upvalues) {
+      this.function.chunk.write(upvalue[1] << 1 | upvalue[0]);
+    }
+  }
+
+  // The class scope (see `SpecialSymbols`) is reserved on the stack while the
+  // methods are created, then filled in & closed by `OpCode.CLASS`
+  private void compileClass(Stmt.ClsStmt cls) throws InterpreterException {
+    // The superclass is resolved outside of the class scope
+    final Location supercls = cls.supercls == null ? null
+        : this.resolve(cls.supercls.symbol(), cls.superclsDepth, cls.superclsSlot);
+    final int slot = this.function.localCount;
+    this.beginScope(2);
+    for (FuncStmt method : cls.methods) {
+      this.compileFunction(method, true);
+    }
+    if (supercls != null) {
+      this.emitGet(supercls);
+    }
+    final Chunk chunk = this.function.chunk;
+    this.emit(OpCode.CLASS, chunk.addName(cls.name.symbol()),
+        -(cls.methods.size() + (supercls != null ? 1 : 0) + 2) + 1);
+    chunk.write(supercls != null ? chunk.addName(supercls.name) : OpCode.NO_SUPERCLASS);
+    chunk.write(cls.methods.size());
+    chunk.write(slot);
+    // The class scope is already popped
+    this.scopes.remove(this.scopes.size() - 1);
+    this.function.localCount = slot;
+    this.compileDefine(cls.name.symbol(), cls.slot);
+  }
+
+  // Compile an expression whose value is popped, an assignment pops it itself
+  private void compileDiscarded(Expr expr) throws InterpreterException {
+    if (expr instanceof Expr.Binary b && b.op.type == TokenType.EQUAL && b.left instanceof Expr.Variable v) {
+      this.compileExpr(b.right);
+      this.emitSetPop(this.resolve(v.var.symbol(), v.depth, v.slot));
+    } else if (expr instanceof Expr.Set s) {
+      this.compileExpr(s.value);
+      this.compileExpr(s.object);
+      this.emitProperty(OpCode.SET_PROPERTY_POP, -2, s.property.symbol(), s.cache);
+    } else {
+      this.compileExpr(expr);
+      this.emit(OpCode.POP, -1);
+    }
+  }
+
+  private void compileExpr(Expr expr) throws InterpreterException {
+    switch (expr) {
+      case Expr.Binary b -> this.compileBinary(b);
+      case Expr.Unary u -> {
+        this.compileExpr(u.inner);
+        switch (u.op.type) {
+          case TokenType.BANG -> this.emit(OpCode.NOT, 0);
+          case TokenType.MINUS -> this.emit(OpCode.NEGATE, 0);
+          default -> throw new Error(String.format("Unreachable: Unexpected unary operator '%s'", u.op.lexeme()));
+        }
+      }
+      case Expr.Grouping g -> this.compileExpr(g.inner);
+      case Expr.Literal l -> this.compileLiteral(l.value);
+      case Expr.Variable v -> this.emitGet(this.resolve(v.var.symbol(), v.depth, v.slot));
+      case Expr.This t -> this.emitGet(this.resolveThis(t.depth));
+      case Expr.Call c -> {
+        if (c.callee instanceof Expr.Get g) {
+          this.compileExpr(g.object);
+          this.emitProperty(OpCode.GET_METHOD, 1, g.property.symbol(), g.cache);
+          this.compileArguments(c.params);
+          this.emitCall(OpCode.INVOKE, c.params.size(), -(c.params.size() + 1));
+        } else {
+          this.compileExpr(c.callee);
+          this.compileArguments(c.params);
+          this.emitCall(OpCode.CALL, c.params.size(), -c.params.size());
+        }
+      }
+      case Expr.Get g -> {
+        if (g.object instanceof Expr.This t && this.resolveThis(t.depth).kind == LOCAL) {
+          this.emitProperty(OpCode.GET_THIS_PROPERTY, 1, g.property.symbol(), g.cache);
+        } else {
+          this.compileExpr(g.object);
+          this.emitProperty(OpCode.GET_PROPERTY, 0, g.property.symbol(), g.cache);
+        }
+      }
+      case Expr.Set s -> {
+        this.compileExpr(s.value);
+        this.compileExpr(s.object);
+        this.emitProperty(OpCode.SET_PROPERTY, -1, s.property.symbol(), s.cache);
+      }
+      case Expr.SuperGet s -> {
+        this.emitGet(this.resolveSuper(s.depth));
+        this.emitGet(this.resolveThis(s.depth));
+        this.emit(OpCode.SUPER_GET, this.function.chunk.addName(s.member.symbol()), -1);
+      }
+      case Expr.SuperCall s -> {
+        this.emitGet(this.resolveSuper(s.depth));
+        this.emitGet(this.resolveThis(s.depth));
+        this.compileArguments(s.params);
+        this.emitCall(OpCode.SUPER_CALL, s.params.size(), -(s.params.size() + 1));
+      }
+      default -> throw new Error("Non-exhaustive check");
+    }
+  }
+
+  private void compileBinary(Expr.Binary bin) throws InterpreterException {
+    switch (bin.op.type) {
+      case TokenType.EQUAL -> {
+        final Expr.Variable v = (Expr.Variable) bin.left;
+        this.compileExpr(bin.right);
+        this.emitSet(this.resolve(v.var.symbol(), v.depth, v.slot));
+        return;
+      }
+      case TokenType.OR, TokenType.AND -> {
+        this.compileExpr(bin.left);
+        final int endJump = this.emitJump(
+            bin.op.type == TokenType.OR ? OpCode.JUMP_IF_TRUE : OpCode.JUMP_IF_FALSE, 0);
+        this.emit(OpCode.POP, -1);
+        this.compileExpr(bin.right);
+        this.patchJump(endJump);
+        return;
+      }
+      default -> {
+      }
+    }
+    this.compileExpr(bin.left);
+    if (bin.right instanceof Expr.Literal l && l.value.literal instanceof Double d) {
+      final byte op = switch (bin.op.type) {
+        case TokenType.PLUS -> OpCode.ADD_CONSTANT;
+        case TokenType.MINUS -> OpCode.SUBTRACT_CONSTANT;
+        case TokenType.STAR -> OpCode.MULTIPLY_CONSTANT;
+        case TokenType.SLASH -> OpCode.DIVIDE_CONSTANT;
+        case TokenType.LESS -> OpCode.LESS_CONSTANT;
+        case TokenType.LESS_EQUAL -> OpCode.LESS_EQUAL_CONSTANT;
+        case TokenType.GREATER -> OpCode.GREATER_CONSTANT;
+        case TokenType.GREATER_EQUAL -> OpCode.GREATER_EQUAL_CONSTANT;
+        default -> -1;
+      };
+      if (op != -1) {
+        this.emit(op, this.function.chunk.addConstant(LoxNumber.valueOf(d)), 0);
+        return;
+      }
+    }
+    this.compileExpr(bin.right);
+    switch (bin.op.type) {
+      case TokenType.PLUS -> this.emit(OpCode.ADD, -1);
+      case TokenType.MINUS -> this.emit(OpCode.SUBTRACT, -1);
+      case TokenType.STAR -> this.emit(OpCode.MULTIPLY, -1);
+      case TokenType.SLASH -> this.emit(OpCode.DIVIDE, -1);
+      case TokenType.LESS -> this.emit(OpCode.LESS, -1);
+      case TokenType.LESS_EQUAL -> this.emit(OpCode.LESS_EQUAL, -1);
+      case TokenType.GREATER -> this.emit(OpCode.GREATER, -1);
+      case TokenType.GREATER_EQUAL -> this.emit(OpCode.GREATER_EQUAL, -1);
+      case TokenType.EQUAL_EQUAL -> this.emit(OpCode.EQUAL, -1);
+      case TokenType.BANG_EQUAL -> {
+        this.emit(OpCode.EQUAL, -1);
+        this.emit(OpCode.NOT, 0);
+      }
+      default -> throw new Error(String.format("Unreachable: Unexpected binary operator '%s'", bin.op.lexeme()));
+    }
+  }
+
+  private void compileLiteral(Token token) throws InterpreterException {
+    switch (token.literal) {
+      case null -> this.emit(OpCode.NIL, 1);
+      case Boolean b -> this.emit(b ? OpCode.TRUE : OpCode.FALSE, 1);
+      case Double d -> this.emitConstant(LoxNumber.valueOf(d));
+      case String s -> this.emitConstant(new LoxString(s));
+      default -> throw new Error(String.format("Unreachable: Unexpected literal type"));
+    }
+  }
+
+  private void compileArguments(List<Expr> args) throws InterpreterException {
+    if (args.size() > 255) {
+      throw new InterpreterException("Cannot have more than 255 arguments");
+    }
+    for (Expr arg : args) {
+      this.compileExpr(arg);
+    }
+  }
+
+  private void compileDefine(Symbol name, int slot) throws InterpreterException {
+    if (slot == -1) {
+      this.emit(OpCode.DEFINE_GLOBAL, this.function.chunk.addName(name), -1);
+    } else {
+      this.emit(OpCode.DEFINE_LOCAL, this.scopes.get(this.scopes.size() - 1).base + slot, -1);
+    }
+  }
+
+  // See `Resolver.lookup`
+  private Location resolve(Symbol name, int depth, int slot) throws InterpreterException {
+    if (depth == -1) {
+      return new Location(GLOBAL, -1, name);
+    }
+    final Scope scope = this.scopes.get(this.scopes.size() - 1 - depth);
+    if (scope.function == this.function) {
+      return new Location(LOCAL, scope.base + slot, name);
+    }
+    return new Location(UPVALUE, this.resolveUpvalue(this.function, scope.function, scope.base + slot), name);
+  }
+
+  // `this` is in the parameter scope of the method at `depth`
+  private Location resolveThis(int depth) throws InterpreterException {
+    return this.resolve(SpecialSymbols.THIS_OBJECT, depth, SpecialSymbols.THIS_OBJECT_SLOT);
+  }
+
+  // `super` is in the class scope, just outside of the parameter scope
+  private Location resolveSuper(int depth) throws InterpreterException {
+    return this.resolve(SpecialSymbols.SUPER_CLASS, depth == -1 ? -1 : depth + 1, SpecialSymbols.SUPER_CLASS_SLOT);
+  }
+
+  // Return the upvalue of `fn` capturing the slot `index` of `owner`
+  private int resolveUpvalue(FunctionState fn, FunctionState owner, int index) throws InterpreterException {
+    if (fn.enclosing == owner) {
+      return this.addUpvalue(fn, 1, index);
+    }
+    return this.addUpvalue(fn, 0, this.resolveUpvalue(fn.enclosing, owner, index));
+  }
+
+  private int addUpvalue(FunctionState fn, int isLocal, int index) throws InterpreterException {
+    for (int i = 0; i < fn.upvalues.size(); ++i) {
+      final int[] upvalue = fn.upvalues.get(i);
+      if (upvalue[0] == isLocal && upvalue[1] == index) {
+        return i;
+      }
+    }
+    if (fn.upvalues.size() == 0xffff) {
+      throw new InterpreterException("Too many closure variables in function");
+    }
+    fn.upvalues.add(new int[] { isLocal, index });
+    return fn.upvalues.size() - 1;
+  }
+
+  private void beginScope(int size) {
+    this.scopes.add(new Scope(this.function, this.function.localCount));
+    this.function.localCount += size;
+    this.emit(OpCode.SCOPE, size, size);
+  }
+
+  private void endScope() {
+    final Scope scope = this.scopes.remove(this.scopes.size() - 1);
+    this.emit(OpCode.END_SCOPE, scope.base, scope.base - this.function.localCount);
+    this.function.localCount = scope.base;
+  }
+
+  private void emitGet(Location location) throws InterpreterException {
+    switch (location.kind) {
+      case GLOBAL -> this.emit(OpCode.GET_GLOBAL, this.function.chunk.addName(location.name), 1);
+      case LOCAL -> this.emitVariable(OpCode.GET_LOCAL, location, 1);
+      default -> this.emitVariable(OpCode.GET_UPVALUE, location, 1);
+    }
+  }
+
+  private void emitSet(Location location) throws InterpreterException {
+    switch (location.kind) {
+      case GLOBAL -> this.emit(OpCode.SET_GLOBAL, this.function.chunk.addName(location.name), 0);
+      case LOCAL -> this.emitVariable(OpCode.SET_LOCAL, location, 0);
+      default -> this.emitVariable(OpCode.SET_UPVALUE, location, 0);
+    }
+  }
+
+  // Upvalues are assigned then popped
+  private void emitSetPop(Location location) throws InterpreterException {
+    switch (location.kind) {
+      case GLOBAL -> this.emit(OpCode.SET_GLOBAL_POP, this.function.chunk.addName(location.name), -1);
+      case LOCAL -> this.emitVariable(OpCode.SET_LOCAL_POP, location, -1);
+      default -> {
+        this.emitSet(location);
+        this.emit(OpCode.POP, -1);
+      }
+    }
+  }
+
+  // A local or an upvalue, its name follows for the error messages
+  private void emitVariable(byte op, Location location, int stackEffect) throws InterpreterException {
+    this.emit(op, location.index, stackEffect);
+    this.function.chunk.write(this.function.chunk.addName(location.name));
+  }
+
+  private void emitProperty(byte op, int stackEffect, Symbol name, Object cache) throws InterpreterException {
+    final Chunk chunk = this.function.chunk;
+    this.emit(op, chunk.addConstant(cache), stackEffect);
+    chunk.write(chunk.addName(name));
+  }
+
+  private void emitCall(byte op, int argCount, int stackEffect) {
+    this.emit(op, argCount, stackEffect);
+  }
+
+  private void emitConstant(Object value) throws InterpreterException {
+    this.emit(OpCode.CONSTANT, this.function.chunk.addConstant(value), 1);
+  }
+
+  private void emitThrow(String message) throws InterpreterException {
+    this.emit(OpCode.THROW, this.function.chunk.addConstant(message), 0);
+  }
+
+  // Return the offset of the jump to patch
+  private int emitJump(byte op, int stackEffect) {
+    this.emit(op, Chunk.MAX_OPERAND, stackEffect);
+    return this.function.chunk.count - 1;
+  }
+
+  // Jump targets are absolute
+  private void patchJump(int offset) throws InterpreterException {
+    if (this.function.chunk.count > Chunk.MAX_OPERAND) {
+      throw new InterpreterException("Too much code to jump over");
+    }
+    this.function.chunk.patchOperand(offset, this.function.chunk.count);
+  }
+
+  private void emitLoop(int loopStart) throws InterpreterException {
+    if (this.function.chunk.count >= Chunk.MAX_OPERAND) {
+      throw new InterpreterException("Loop body too large");
+    }
+    this.emit(OpCode.LOOP, loopStart, 0);
+  }
+
+  private void emit(byte op, int stackEffect) {
+    this.emit(op, 0, stackEffect);
+  }
+
+  private void emit(byte op, int operand, int stackEffect) {
+    this.function.chunk.write(op, operand);
+    this.adjustStack(stackEffect);
+  }
+
+  private void adjustStack(int stackEffect) {
+    this.function.stackSize += stackEffect;
+    this.function.maxStack = Math.max(this.function.maxStack, this.function.stackSize);
+  }
+}
@@ -0,0 +1,113 @@
+package com.lox.vm;
+
+// The instructions of `Chunk`, one int word each: the opcode in the low byte
+// and its operand in the upper 24 bits. Some take extra operands, one word
+// each after the instruction. Unless stated otherwise, operands named
+// `constant` and `name` index the constant pool and slots are relative to the
+// base of the current frame
+public final class OpCode {
+  // constant, push the constant
+  public static final byte CONSTANT = 0;
+  public static final byte NIL = 1;
+  public static final byte TRUE = 2;
+  public static final byte FALSE = 3;
+  public static final byte POP = 4;
+
+  // slot, then name
+  public static final byte GET_LOCAL = 5;
+  // slot, then name, assign the top of the stack without popping it
+  public static final byte SET_LOCAL = 6;
+  // slot, pop the initial value of the variable
+  public static final byte DEFINE_LOCAL = 7;
+  // name
+  public static final byte GET_GLOBAL = 8;
+  public static final byte SET_GLOBAL = 9;
+  public static final byte DEFINE_GLOBAL = 10;
+  // index (in the upvalues of the current closure), then name
+  public static final byte GET_UPVALUE = 11;
+  public static final byte SET_UPVALUE = 12;
+
+  // size, reserve the slots of a scope, all in the temporal deadzone
+  public static final byte SCOPE = 13;
+  // slot, close the upvalues of the slots from `slot` and pop them
+  public static final byte END_SCOPE = 14;
+
+  public static final byte ADD = 15;
+  public static final byte SUBTRACT = 16;
+  public static final byte MULTIPLY = 17;
+  public static final byte DIVIDE = 18;
+  public static final byte LESS = 19;
+  public static final byte LESS_EQUAL = 20;
+  public static final byte GREATER = 21;
+  public static final byte GREATER_EQUAL = 22;
+  public static final byte EQUAL = 23;
+  public static final byte NOT = 24;
+  public static final byte NEGATE = 25;
+
+  // target: the index of the instruction to jump to, forward
+  public static final byte JUMP = 26;
+  // target, backward
+  public static final byte LOOP = 27;
+  // target, pop the condition
+  public static final byte POP_JUMP_IF_FALSE = 28;
+  // target, keep the condition, for `and` & `or`
+  public static final byte JUMP_IF_FALSE = 29;
+  public static final byte JUMP_IF_TRUE = 30;
+
+  // argc, the callee is below the arguments
+  public static final byte CALL = 31;
+  // constant (the Prototype), then per upvalue: index << 1 | isLocal
+  public static final byte CLOSURE = 32;
+  public static final byte RETURN = 33;
+
+  // cache (an InlineCache constant), then name
+  public static final byte GET_PROPERTY = 34;
+  // cache, then name, the value is below the object
+  public static final byte SET_PROPERTY = 35;
+  // cache, then name, replace the object by the callee and the receiver
+  // of `object.name(...)`, see `VM.NO_RECEIVER`
+  public static final byte GET_METHOD = 36;
+  // argc, call the callee & receiver pushed by GET_METHOD
+  public static final byte INVOKE = 37;
+  // name, the superclass is below `this`
+  public static final byte SUPER_GET = 38;
+  // argc, the superclass and `this` are below the arguments
+  public static final byte SUPER_CALL = 39;
+  // name, then superclass name (NO_SUPERCLASS if none), methods and slot.
+  // The methods (and the superclass) are on top of the class scope starting
+  // at `slot`, which is filled in and closed, the class is pushed
+  public static final byte CLASS = 40;
+
+  public static final byte PRINT = 41;
+  // Pop the value of the top-level statement
+  public static final byte SET_RESULT = 42;
+  // Push the value of the top-level statement
+  public static final byte RESULT = 43;
+  // message, throw an InterpreterException
+  public static final byte THROW = 44;
+
+  // Fused instructions, they save the dispatch of the instruction they fold
+  // in. slot, then name, pop the value assigned
+  public static final byte SET_LOCAL_POP = 45;
+  // name, pop the value assigned
+  public static final byte SET_GLOBAL_POP = 46;
+  // constant (a LoxNumber), the right operand
+  public static final byte ADD_CONSTANT = 47;
+  public static final byte SUBTRACT_CONSTANT = 48;
+  public static final byte MULTIPLY_CONSTANT = 49;
+  public static final byte DIVIDE_CONSTANT = 50;
+  public static final byte LESS_CONSTANT = 51;
+  public static final byte LESS_EQUAL_CONSTANT = 52;
+  public static final byte GREATER_CONSTANT = 53;
+  public static final byte GREATER_EQUAL_CONSTANT = 54;
+  // cache, then name, pop the value assigned
+  public static final byte SET_PROPERTY_POP = 55;
+  // cache, then name, push `this.name` in a method, `this` being a local of
+  // the frame
+  public static final byte GET_THIS_PROPERTY = 56;
+
+  public static final int NO_SUPERCLASS = 0xffff;
+
+  private OpCode() {
+  }
+}
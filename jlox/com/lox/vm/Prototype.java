@@ -0,0 +1,25 @@
+package com.lox.vm;
+
+import com.lox.ast.Stmt.FuncStmt;
+
+// A compiled function, closures of the function share its prototype
+public class Prototype {
+  public final String name;
+  public final int arity;
+  public final Chunk chunk;
+  public final int upvalueCount;
+  // The maximum number of slots the function uses on the stack, parameters
+  // included
+  public final int maxStack;
+  // The declaration of the function, null for a top-level statement
+  public final FuncStmt node;
+
+  public Prototype(String name, int arity, Chunk chunk, int upvalueCount, int maxStack, FuncStmt node) {
+    this.name = name;
+    this.arity = arity;
+    this.chunk = chunk;
+    this.upvalueCount = upvalueCount;
+    this.maxStack = maxStack;
+    this.node = node;
+  }
+}
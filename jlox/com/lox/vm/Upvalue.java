@@ -0,0 +1,18 @@
+package com.lox.vm;
+
+import com.lox.object.LoxObject;
+
+// A variable captured by a closure. While the variable's scope is alive the
+// upvalue points to its slot on the VM stack, afterwards it holds the value
+public class Upvalue {
+  // The stack slot, -1 once closed
+  int index;
+  LoxObject closed = null;
+  // The next open upvalue, open upvalues are sorted by decreasing slots
+  Upvalue next;
+
+  Upvalue(int index, Upvalue next) {
+    this.index = index;
+    this.next = next;
+  }
+}
@@ -0,0 +1,716 @@
+package com.lox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.lox.Environment;
+import com.lox.InterpreterException;
+import com.lox.Profiler;
+import com.lox.SpecialSymbols;
+import com.lox.Symbol;
+import com.lox.ast.Stmt;
+import com.lox.object.InlineCache;
+import com.lox.object.LoxBoolean;
+import com.lox.object.LoxClass;
+import com.lox.object.LoxFunction;
+import com.lox.object.LoxNil;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+import com.lox.object.LoxString;
+
+// A stack-based virtual machine running the bytecode of `Compiler`, another
+// alternative to the tree-walking `Interpreter` with the same semantics.
+//
+// Every call pushes a frame whose slots start at `base` on the value stack:
+// the receiver (for methods) and the arguments, then the locals and the
+// temporaries. The callee sits just below `base` and is replaced by the
+// result when the call returns. Variables captured by closures are accessed
+// through upvalues, which point into the stack until the variable's scope is
+// popped, at which point they keep the value (see `Upvalue`).
+public class VM {
+  // Same limit as clox for the frames, the value stack grows as needed
+  private static final int FRAMES_MAX = 65536;
+
+  // How a frame returns, see `OpCode.RETURN`
+  private static final int NORMAL = 0;
+  // The result is the receiver
+  private static final int CONSTRUCTOR = 1;
+  // The result is nil, for `super(...)`
+  private static final int SUPER_CONSTRUCTOR = 2;
+
+  // Pushed by `OpCode.GET_METHOD` when the callee is not a method, the
+  // arguments are then shifted down over it before calling
+  private static final LoxObject NO_RECEIVER = new LoxObject() {
+    @Override
+    public String toString() {
+      return "<no receiver>";
+    }
+
+    @Override
+    public LoxClass cls() {
+      return LoxObject.OBJECT;
+    }
+  };
+
+  // Frames are reused, only `frameCount` of them are live
+  private static class Frame {
+    Closure closure;
+    int[] code;
+    Object[] constants;
+    Upvalue[] upvalues;
+    int ip;
+    int base;
+    int kind;
+  }
+
+  private LoxObject[] stack = new LoxObject[256];
+  private int sp = 0;
+  private Frame[] frames = new Frame[64];
+  private int frameCount = 0;
+  // The slots below are the only ones a run may have left set, see `execute`
+  private int highWater = 0;
+  private Upvalue openUpvalues = null;
+  // The value of the top-level statement
+  private LoxObject result = LoxNil.NIL;
+  private Environment globals = null;
+  // Kept up to date with the frames of user functions if set
+  private final Profiler profiler;
+
+  public VM() {
+    this(null);
+  }
+
+  public VM(Profiler profiler) {
+    this.profiler = profiler;
+  }
+
+  // Compile & run a resolved top-level statement in the global environment
+  // `env`
+  public LoxObject execute(Stmt stmt, Environment env) throws InterpreterException {
+    final Prototype script = new Compiler().compileScript(stmt);
+    this.globals = env;
+    this.result = LoxNil.NIL;
+    this.sp = 0;
+    this.frameCount = 0;
+    this.openUpvalues = null;
+
+    this.stack[this.sp++] = new Closure(script, new Upvalue[0]);
+    try {
+      this.pushFrame((Closure) this.stack[0], 1, 0, NORMAL);
+      return this.run();
+    } finally {
+      this.result = LoxNil.NIL;
+      // Popped slots are not cleared while running, release what the run
+      // left once it is over
+      Arrays.fill(this.stack, 0, this.highWater, null);
+      this.highWater = 0;
+    }
+  }
+
+  // Run until the frame of the top-level statement returns. The state of the
+  // top frame is kept in locals, which are loaded again by the outer loop
+  // whenever a call or a return changes the top frame
+  private LoxObject run() throws InterpreterException {
+    final Environment globals = this.globals;
+
+    frames:
+    while (true) {
+      final Frame frame = this.frames[this.frameCount - 1];
+      final int[] code = frame.code;
+      final Object[] constants = frame.constants;
+      final Upvalue[] upvalues = frame.upvalues;
+      final int base = frame.base;
+      int ip = frame.ip;
+      // Calls may grow the stack
+      final LoxObject[] stack = this.stack;
+      // Kept in a local, `sp` is synced with `this.sp` around calls
+      int sp = this.sp;
+
+      while (true) {
+        final int insn = code[ip++];
+        switch ((byte) insn) {
+          case OpCode.CONSTANT -> stack[sp++] = (LoxObject) constants[insn >>> 8];
+          case OpCode.NIL -> stack[sp++] = LoxNil.NIL;
+          case OpCode.TRUE -> stack[sp++] = LoxBoolean.TRUE;
+          case OpCode.FALSE -> stack[sp++] = LoxBoolean.FALSE;
+          case OpCode.POP -> sp--;
+
+          case OpCode.GET_LOCAL -> {
+            final LoxObject value = stack[base + (insn >>> 8)];
+            if (value == null) {
+              throw usedBeforeDefined(constants[code[ip]]);
+            }
+            stack[sp++] = value;
+            ip++;
+          }
+          case OpCode.SET_LOCAL -> {
+            final int slot = base + (insn >>> 8);
+            if (stack[slot] == null) {
+              throw usedBeforeDefined(constants[code[ip]]);
+            }
+            stack[slot] = stack[sp - 1];
+            ip++;
+          }
+          case OpCode.SET_LOCAL_POP -> {
+            final int slot = base + (insn >>> 8);
+            if (stack[slot] == null) {
+              throw usedBeforeDefined(constants[code[ip]]);
+            }
+            stack[slot] = stack[--sp];
+            ip++;
+          }
+          case OpCode.DEFINE_LOCAL -> stack[base + (insn >>> 8)] = stack[--sp];
+          case OpCode.GET_GLOBAL -> stack[sp++] = globals.getGlobal((Symbol) constants[insn >>> 8]);
+          case OpCode.SET_GLOBAL -> globals.assignGlobal((Symbol) constants[insn >>> 8], stack[sp - 1]);
+          case OpCode.SET_GLOBAL_POP -> globals.assignGlobal((Symbol) constants[insn >>> 8], stack[--sp]);
+          case OpCode.DEFINE_GLOBAL -> globals.defineGlobal((Symbol) constants[insn >>> 8], stack[--sp]);
+          case OpCode.GET_UPVALUE -> {
+            final Upvalue upvalue = upvalues[insn >>> 8];
+            final LoxObject value = upvalue.index >= 0 ? stack[upvalue.index] : upvalue.closed;
+            if (value == null) {
+              throw usedBeforeDefined(constants[code[ip]]);
+            }
+            stack[sp++] = value;
+            ip++;
+          }
+          case OpCode.SET_UPVALUE -> {
+            final Upvalue upvalue = upvalues[insn >>> 8];
+            if ((upvalue.index >= 0 ? stack[upvalue.index] : upvalue.closed) == null) {
+              throw usedBeforeDefined(constants[code[ip]]);
+            }
+            if (upvalue.index >= 0) {
+              stack[upvalue.index] = stack[sp - 1];
+            } else {
+              upvalue.closed = stack[sp - 1];
+            }
+            ip++;
+          }
+
+          case OpCode.SCOPE -> {
+            // The slots may hold popped values, they are usually few
+            for (int end = sp + (insn >>> 8); sp < end; ++sp) {
+              stack[sp] = null;
+            }
+          }
+          case OpCode.END_SCOPE -> {
+            final int slot = base + (insn >>> 8);
+            this.closeUpvalues(slot);
+            sp = slot;
+          }
+
+          case OpCode.ADD -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value + r.value);
+            } else {
+              throw unsupportedOperands("+", left, right);
+            }
+          }
+          case OpCode.SUBTRACT -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value - r.value);
+            } else {
+              throw unsupportedOperands("-", left, right);
+            }
+          }
+          case OpCode.MULTIPLY -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value * r.value);
+            } else {
+              throw unsupportedOperands("*", left, right);
+            }
+          }
+          case OpCode.DIVIDE -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value / r.value);
+            } else {
+              throw unsupportedOperands("/", left, right);
+            }
+          }
+          // Comparisons followed by POP_JUMP_IF_FALSE, i.e. conditions, take
+          // the jump themselves, which saves its dispatch
+          case OpCode.LESS -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              final boolean res = l.value < r.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands("<", left, right);
+            }
+          }
+          case OpCode.LESS_EQUAL -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              final boolean res = l.value <= r.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands("<=", left, right);
+            }
+          }
+          case OpCode.GREATER -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              final boolean res = l.value > r.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands(">", left, right);
+            }
+          }
+          case OpCode.GREATER_EQUAL -> {
+            final LoxObject right = stack[--sp];
+            final LoxObject left = stack[sp - 1];
+            if (left instanceof LoxNumber l && right instanceof LoxNumber r) {
+              final boolean res = l.value >= r.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands(">=", left, right);
+            }
+          }
+          case OpCode.ADD_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value + right.value);
+            } else {
+              throw unsupportedOperands("+", stack[sp - 1], right);
+            }
+          }
+          case OpCode.SUBTRACT_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value - right.value);
+            } else {
+              throw unsupportedOperands("-", stack[sp - 1], right);
+            }
+          }
+          case OpCode.MULTIPLY_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value * right.value);
+            } else {
+              throw unsupportedOperands("*", stack[sp - 1], right);
+            }
+          }
+          case OpCode.DIVIDE_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              stack[sp - 1] = LoxNumber.valueOf(l.value / right.value);
+            } else {
+              throw unsupportedOperands("/", stack[sp - 1], right);
+            }
+          }
+          case OpCode.LESS_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              final boolean res = l.value < right.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands("<", stack[sp - 1], right);
+            }
+          }
+          case OpCode.LESS_EQUAL_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              final boolean res = l.value <= right.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands("<=", stack[sp - 1], right);
+            }
+          }
+          case OpCode.GREATER_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              final boolean res = l.value > right.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands(">", stack[sp - 1], right);
+            }
+          }
+          case OpCode.GREATER_EQUAL_CONSTANT -> {
+            final LoxNumber right = (LoxNumber) constants[insn >>> 8];
+            if (stack[sp - 1] instanceof LoxNumber l) {
+              final boolean res = l.value >= right.value;
+              if ((byte) code[ip] == OpCode.POP_JUMP_IF_FALSE) {
+                sp--;
+                ip = res ? ip + 1 : code[ip] >>> 8;
+              } else {
+                stack[sp - 1] = res ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+              }
+            } else {
+              throw unsupportedOperands(">=", stack[sp - 1], right);
+            }
+          }
+          case OpCode.EQUAL -> {
+            final LoxObject right = stack[--sp];
+            stack[sp - 1] = isEqual(stack[sp - 1], right) ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+          }
+          case OpCode.NOT -> stack[sp - 1] = isFalsy(stack[sp - 1]) ? LoxBoolean.TRUE : LoxBoolean.FALSE;
+          case OpCode.NEGATE -> {
+            if (!(stack[sp - 1] instanceof LoxNumber n)) {
+              throw new InterpreterException(
+                  String.format("Unsupported operator '-' on %s", stack[sp - 1].cls().name));
+            }
+            stack[sp - 1] = LoxNumber.valueOf(-n.value);
+          }
+
+          case OpCode.JUMP, OpCode.LOOP -> ip = insn >>> 8;
+          case OpCode.POP_JUMP_IF_FALSE -> {
+            if (isFalsy(stack[--sp])) {
+              ip = insn >>> 8;
+            }
+          }
+          case OpCode.JUMP_IF_FALSE -> {
+            if (isFalsy(stack[sp - 1])) {
+              ip = insn >>> 8;
+            }
+          }
+          case OpCode.JUMP_IF_TRUE -> {
+            if (!isFalsy(stack[sp - 1])) {
+              ip = insn >>> 8;
+            }
+          }
+
+          case OpCode.CALL -> {
+            final int argCount = insn >>> 8;
+            final int calleeSlot = sp - argCount - 1;
+            frame.ip = ip;
+            this.sp = sp;
+            this.call(stack[calleeSlot], calleeSlot, argCount);
+            continue frames;
+          }
+          case OpCode.CLOSURE -> {
+            final Prototype proto = (Prototype) constants[insn >>> 8];
+            final Upvalue[] captured = new Upvalue[proto.upvalueCount];
+            for (int i = 0; i < captured.length; ++i) {
+              final int upvalue = code[ip++];
+              final int index = upvalue >>> 1;
+              captured[i] = (upvalue & 1) != 0 ? this.captureUpvalue(base + index) : upvalues[index];
+            }
+            stack[sp++] = new Closure(proto, captured);
+          }
+          case OpCode.RETURN -> {
+            LoxObject value = stack[sp - 1];
+            this.closeUpvalues(base);
+            if (frame.kind == CONSTRUCTOR) {
+              value = stack[base];
+            } else if (frame.kind == SUPER_CONSTRUCTOR) {
+              value = LoxNil.NIL;
+            }
+            if (this.profiler != null && frame.closure.proto.node != null) {
+              this.profiler.exit();
+            }
+            this.frameCount--;
+            if (this.frameCount == 0) {
+              return value;
+            }
+            stack[base - 1] = value;
+            this.sp = base;
+            continue frames;
+          }
+
+          case OpCode.GET_PROPERTY -> {
+            final InlineCache cache = (InlineCache) constants[insn >>> 8];
+            stack[sp - 1] = cache.get(stack[sp - 1], (Symbol) constants[code[ip++]]);
+          }
+          case OpCode.SET_PROPERTY -> {
+            final InlineCache cache = (InlineCache) constants[insn >>> 8];
+            final LoxObject object = stack[--sp];
+            cache.set(object, (Symbol) constants[code[ip++]], stack[sp - 1]);
+          }
+          case OpCode.SET_PROPERTY_POP -> {
+            final InlineCache cache = (InlineCache) constants[insn >>> 8];
+            final LoxObject object = stack[--sp];
+            cache.set(object, (Symbol) constants[code[ip++]], stack[--sp]);
+          }
+          case OpCode.GET_THIS_PROPERTY -> {
+            final InlineCache cache = (InlineCache) constants[insn >>> 8];
+            stack[sp++] = cache.get(stack[base + SpecialSymbols.THIS_OBJECT_SLOT], (Symbol) constants[code[ip++]]);
+          }
+          case OpCode.GET_METHOD -> {
+            // The method is looked up before evaluating the arguments, fields
+            // shadow methods
+            final InlineCache cache = (InlineCache) constants[insn >>> 8];
+            final Symbol name = (Symbol) constants[code[ip++]];
+            final LoxObject object = stack[sp - 1];
+            final LoxObject method = cache.getMethod(object, name);
+            if (method instanceof Closure) {
+              stack[sp - 1] = method;
+              stack[sp++] = object;
+            } else {
+              stack[sp - 1] = method == null ? cache.get(object, name) : method;
+              stack[sp++] = NO_RECEIVER;
+            }
+          }
+          case OpCode.INVOKE -> {
+            final int argCount = insn >>> 8;
+            final int receiverSlot = sp - argCount - 1;
+            frame.ip = ip;
+            if (stack[receiverSlot] == NO_RECEIVER) {
+              System.arraycopy(stack, receiverSlot + 1, stack, receiverSlot, argCount);
+              this.sp = sp - 1;
+              this.call(stack[receiverSlot - 1], receiverSlot - 1, argCount);
+            } else {
+              this.sp = sp;
+              this.pushFrame((Closure) stack[receiverSlot - 1], receiverSlot, argCount, NORMAL);
+            }
+            continue frames;
+          }
+          case OpCode.SUPER_GET -> {
+            final LoxObject thisObj = stack[--sp];
+            final LoxClass supercls = (LoxClass) stack[sp - 1];
+            stack[sp - 1] = thisObj.getMethod((Symbol) constants[insn >>> 8], supercls);
+          }
+          case OpCode.SUPER_CALL -> {
+            final int argCount = insn >>> 8;
+            final int thisSlot = sp - argCount - 1;
+            final LoxClass supercls = (LoxClass) stack[thisSlot - 1];
+            final LoxObject constructor = stack[thisSlot].getMethod(SpecialSymbols.CONSTRUCTOR, supercls);
+            // Without a constructor to call, the arguments are still evaluated
+            if (constructor instanceof BoundMethod b) {
+              frame.ip = ip;
+              this.sp = sp;
+              this.pushFrame(b.method, thisSlot, argCount, SUPER_CONSTRUCTOR);
+              continue frames;
+            }
+            stack[thisSlot - 1] = LoxNil.NIL;
+            sp = thisSlot;
+          }
+          case OpCode.CLASS -> {
+            final String name = ((Symbol) constants[insn >>> 8]).name;
+            final int superName = code[ip];
+            final int methodCount = code[ip + 1];
+            final int slot = base + code[ip + 2];
+            ip += 3;
+            LoxClass supercls = null;
+            if (superName != OpCode.NO_SUPERCLASS) {
+              final LoxObject value = stack[--sp];
+              if (!(value instanceof LoxClass)) {
+                throw new InterpreterException(String.format("'%s' is not a class", constants[superName]));
+              }
+              supercls = (LoxClass) value;
+            }
+            final List<LoxFunction> methods = new ArrayList<>();
+            for (int i = sp - methodCount; i < sp; ++i) {
+              methods.add((LoxFunction) stack[i]);
+            }
+            final LoxClass cls = supercls == null ? new LoxClass(name, methods)
+                : new LoxClass(name, supercls, methods);
+            // Methods see the class scope through their upvalues
+            stack[slot] = cls;
+            stack[slot + 1] = cls.supercls;
+            this.closeUpvalues(slot);
+            sp = slot;
+            stack[sp++] = cls;
+          }
+
+          case OpCode.PRINT -> {
+            System.out.println(stack[--sp].toString());
+          }
+          case OpCode.SET_RESULT -> {
+            this.result = stack[--sp];
+          }
+          case OpCode.RESULT -> stack[sp++] = this.result;
+          case OpCode.THROW -> throw new InterpreterException((String) constants[insn >>> 8]);
+          default -> throw new Error(String.format("Unreachable: Unexpected opcode %d", (byte) insn));
+        }
+      }
+    }
+  }
+
+  // The callee is at `calleeSlot`, followed by the arguments. Either push the
+  // frame of the callee or replace the callee by the result
+  private void call(LoxObject callee, int calleeSlot, int argCount) throws InterpreterException {
+    if (callee instanceof Closure c) {
+      this.pushFrame(c, calleeSlot + 1, argCount, NORMAL);
+    } else if (callee instanceof BoundMethod b) {
+      this.insertReceiver(calleeSlot + 1, b.receiver);
+      this.pushFrame(b.method, calleeSlot + 1, argCount, NORMAL);
+    } else if (callee instanceof LoxFunction.LoxForeignFunction f) {
+      if (f.arity() != argCount) {
+        throw wrongArity(f.arity(), argCount);
+      }
+      this.stack[calleeSlot] = f.call(Arrays.asList(Arrays.copyOfRange(this.stack, calleeSlot + 1, this.sp)));
+      this.sp = calleeSlot + 1;
+    } else if (callee instanceof LoxClass cls) {
+      final LoxObject object = cls.instantiate();
+      final LoxObject constructor = cls.constructor();
+      if (constructor instanceof Closure c) {
+        this.insertReceiver(calleeSlot + 1, object);
+        this.pushFrame(c, calleeSlot + 1, argCount, CONSTRUCTOR);
+      } else {
+        if (argCount != 0) {
+          throw wrongArity(0, argCount);
+        }
+        this.stack[calleeSlot] = object;
+        this.sp = calleeSlot + 1;
+      }
+    } else {
+      throw new InterpreterException("Callee is not of Callable type");
+    }
+  }
+
+  // Make room for the receiver of a method call below the arguments, there is
+  // always room for one more slot on the stack (see `pushFrame`)
+  private void insertReceiver(int slot, LoxObject receiver) {
+    System.arraycopy(this.stack, slot, this.stack, slot + 1, this.sp - slot);
+    this.stack[slot] = receiver;
+    this.sp++;
+  }
+
+  // Push the frame of a call of `closure` on the arguments from `base` up to
+  // `sp`
+  private void pushFrame(Closure closure, int base, int argCount, int kind) throws InterpreterException {
+    final Prototype proto = closure.proto;
+    if (proto.arity != argCount) {
+      throw wrongArity(proto.arity, argCount);
+    }
+    if (this.frameCount == this.frames.length) {
+      if (this.frameCount == FRAMES_MAX) {
+        throw new InterpreterException("Stack overflow");
+      }
+      this.frames = Arrays.copyOf(this.frames, this.frameCount * 2);
+    }
+    // One more slot for a receiver inserted by a call
+    final int stackSize = base + proto.maxStack + 1;
+    if (stackSize > this.highWater) {
+      this.highWater = stackSize;
+      if (stackSize > this.stack.length) {
+        this.stack = Arrays.copyOf(this.stack, Math.max(stackSize, this.stack.length * 2));
+      }
+    }
+
+    Frame frame = this.frames[this.frameCount];
+    if (frame == null) {
+      frame = new Frame();
+      this.frames[this.frameCount] = frame;
+    }
+    this.frameCount++;
+    frame.closure = closure;
+    frame.code = proto.chunk.code;
+    frame.constants = proto.chunk.constants;
+    frame.upvalues = closure.upvalues;
+    frame.ip = 0;
+    frame.base = base;
+    frame.kind = kind;
+    if (this.profiler != null && proto.node != null) {
+      this.profiler.enter(proto.node);
+    }
+  }
+
+  // Open upvalues are shared by all the closures capturing the same slot
+  private Upvalue captureUpvalue(int slot) {
+    Upvalue prev = null;
+    Upvalue upvalue = this.openUpvalues;
+    while (upvalue != null && upvalue.index > slot) {
+      prev = upvalue;
+      upvalue = upvalue.next;
+    }
+    if (upvalue != null && upvalue.index == slot) {
+      return upvalue;
+    }
+    final Upvalue created = new Upvalue(slot, upvalue);
+    if (prev == null) {
+      this.openUpvalues = created;
+    } else {
+      prev.next = created;
+    }
+    return created;
+  }
+
+  // Close the upvalues of the slots from `slot`
+  private void closeUpvalues(int slot) {
+    while (this.openUpvalues != null && this.openUpvalues.index >= slot) {
+      final Upvalue upvalue = this.openUpvalues;
+      upvalue.closed = this.stack[upvalue.index];
+      upvalue.index = -1;
+      this.openUpvalues = upvalue.next;
+      upvalue.next = null;
+    }
+  }
+
+  // Same as `ValueUtils.isFalsy`
+  private static boolean isFalsy(LoxObject obj) {
+    if (obj instanceof LoxBoolean b) {
+      return !b.value;
+    }
+    return obj instanceof LoxNil;
+  }
+
+  // Same as `ValueUtils.equals`
+  private static boolean isEqual(LoxObject o1, LoxObject o2) {
+    if (o1.cls() != o2.cls()) {
+      return false;
+    }
+    if (o1 instanceof LoxNumber n) {
+      return n.value == ((LoxNumber) o2).value;
+    }
+    if (o1 instanceof LoxNil) {
+      return true;
+    }
+    if (o1 instanceof LoxBoolean b) {
+      return b.value == ((LoxBoolean) o2).value;
+    }
+    if (o1 instanceof LoxString s) {
+      return s.value == ((LoxString) o2).value;
+    }
+    return o1 == o2;
+  }
+
+  private static InterpreterException usedBeforeDefined(Object name) {
+    return new InterpreterException("Variable '" + name + "' used before defined");
+  }
+
+  private static InterpreterException wrongArity(int arity, int argCount) {
+    return new InterpreterException(String.format("Expected %s argument(s) but got %s", arity, argCount));
+  }
+
+  private static InterpreterException unsupportedOperands(String op, LoxObject left, LoxObject right) {
+    return new InterpreterException(String.format("Unsupported operator '%s' on %s and %s", op,
+        left.cls().name, right.cls().name));
+  }
+}
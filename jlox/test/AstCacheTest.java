@@ -0,0 +1,65 @@
+package com.lox;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.lox.ast.AstSerializer;
+import com.lox.ast.Stmt;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AstCacheTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testHitAndMiss() throws Throwable {
+    final AstCache cache = new AstCache(this.dir.resolve("cache"));
+    final String source = "var a = 1; print a + 2;";
+    assertNull(cache.load(source));
+
+    cache.store(source, ParserTestUtils.parse(source).first);
+    final PrettyPrinter printer = new PrettyPrinter();
+    assertEquals(printer.print(ParserTestUtils.parse(source).first), printer.print(cache.load(source)));
+    assertNull(cache.load(source + " "));
+
+    // Hashed in several chunks
+    final String large = "print \"é\";\n".repeat(2000);
+    cache.store(large, ParserTestUtils.parse(large).first);
+    assertNotNull(cache.load(large));
+    assertNull(cache.load(large.substring(1)));
+  }
+
+  @Test
+  public void testRejectsStaleEntries() throws Throwable {
+    final AstCache cache = new AstCache(this.dir);
+    final String source = "print 1;";
+    cache.store(source, ParserTestUtils.parse(source).first);
+
+    final Path entry = AstCacheTestUtils.onlyEntry(this.dir);
+    final byte[] bytes = Files.readAllBytes(entry);
+    ByteBuffer.wrap(bytes).putInt(4, AstSerializer.VERSION + 1);
+    Files.write(entry, bytes);
+    assertNull(cache.load(source));
+
+    final List<Stmt> stmts = ParserTestUtils.parse(source).first;
+    cache.store(source, stmts);
+    assertEquals(entry, AstCacheTestUtils.onlyEntry(this.dir));
+    assertNotNull(cache.load(source));
+  }
+}
+
+class AstCacheTestUtils {
+  static Path onlyEntry(Path dir) throws Throwable {
+    try (Stream<Path> entries = Files.list(dir)) {
+      final List<Path> all = entries.toList();
+      assertEquals(1, all.size());
+      return all.get(0);
+    }
+  }
+}
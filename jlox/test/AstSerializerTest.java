@@ -0,0 +1,104 @@
+package com.lox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.lox.ast.AstSerializer;
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AstSerializerTest {
+  @Test
+  public void testRoundTrip() throws Throwable {
+    AstSerializerTestUtils.assertRoundTrips("print 1 + 2 * -3.5; print !(true == nil) or \"é\" != \"s\" and false;");
+    AstSerializerTestUtils.assertRoundTrips("var a; var b = a = 3; { var c = b; c = c / 2; }");
+    AstSerializerTestUtils.assertRoundTrips("if (1 < 2) print 1; else if (3 >= 4) print 2; while (x <= 3) x = x - 1;");
+    AstSerializerTestUtils.assertRoundTrips("for (var i = 0; i > 10; i = i + 1) print i; for (i = 0; i; i) {}");
+    AstSerializerTestUtils.assertRoundTrips("fun f(a, b) { return a(b)(); } fun g() { return; }");
+    AstSerializerTestUtils.assertRoundTrips("""
+        class A { fun constructor(x) { this.x = x; } fun m() { return this.x; } }
+        class B < A { fun constructor() { super(1); } fun m() { return super.m; } }
+        B().m().n.o = A(2).m();
+        """);
+  }
+
+  @Test
+  public void testTokenOffsets() throws Throwable {
+    final List<Stmt> stmts = AstSerializerTestUtils.roundTrip("var long_name = \"str\";\n  x;");
+    final Stmt.DeclStmt decl = (Stmt.DeclStmt) stmts.get(0);
+    AstSerializerTestUtils.assertTokenIs(decl.id, "long_name", null, 4, 13);
+    AstSerializerTestUtils.assertTokenIs(((Expr.Literal) decl.expr).value, "\"str\"", "str", 16, 21);
+    AstSerializerTestUtils.assertTokenIs(((Expr.Variable) ((Stmt.ExprStmt) stmts.get(1)).expr).var, "x", null, 25, 26);
+  }
+
+  @Test
+  public void testRejectsOtherVersions() throws Throwable {
+    final byte[] bytes = AstSerializer.serialize(ParserTestUtils.parse("print 1;").first);
+    ByteBuffer.wrap(bytes).putInt(4, AstSerializer.VERSION + 1);
+    assertThrows(IOException.class, () -> AstSerializer.deserialize(ByteBuffer.wrap(bytes)));
+
+    assertThrows(IOException.class, () -> AstSerializer.deserialize(ByteBuffer.wrap(new byte[] { 1, 2, 3 })));
+    final byte[] truncated = AstSerializer.serialize(ParserTestUtils.parse("print 1;").first);
+    assertThrows(IOException.class,
+        () -> AstSerializer.deserialize(ByteBuffer.wrap(truncated, 0, truncated.length - 3)));
+  }
+
+  @Test
+  public void testRejectsCorruptedTrees() throws Throwable {
+    // A count of 2^31 - 1 statements, more than the bytes left
+    assertThrows(IOException.class, () -> AstSerializerTestUtils.deserialize(0, 0xff, 0xff, 0xff, 0xff, 0x07));
+    // A for loop whose condition is a print statement
+    assertThrows(IOException.class, () -> AstSerializerTestUtils.deserialize(0, 1, 9, 0, 2, 30, 0, 0));
+
+    // Any bit flipped either fails with an IOException or still decodes
+    final byte[] bytes = AstSerializer.serialize(ParserTestUtils.parse("""
+        for (var i = 0; i < 3; i = i + 1) { print i; }
+        class A < B { fun m(x) { return this.x(super.y, "s"); } }
+        """).first);
+    for (int i = 8; i < bytes.length; ++i) {
+      for (int bit = 0; bit < 8; ++bit) {
+        final byte[] corrupted = bytes.clone();
+        corrupted[i] = (byte) (corrupted[i] ^ 1 << bit);
+        try {
+          AstSerializer.deserialize(ByteBuffer.wrap(corrupted));
+        } catch (IOException e) {
+          // Expected
+        }
+      }
+    }
+  }
+}
+
+class AstSerializerTestUtils {
+  static List<Stmt> roundTrip(String source) throws Throwable {
+    final List<Stmt> stmts = ParserTestUtils.parse(source).first;
+    return AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(stmts)));
+  }
+
+  // Deserialize the bytes of a tree following the header
+  static List<Stmt> deserialize(int... body) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(8 + body.length).putInt(AstSerializer.MAGIC)
+        .putInt(AstSerializer.VERSION);
+    for (int b : body) {
+      buffer.put((byte) b);
+    }
+    return AstSerializer.deserialize(buffer.flip());
+  }
+
+  static void assertRoundTrips(String source) throws Throwable {
+    final PrettyPrinter printer = new PrettyPrinter();
+    assertEquals(printer.print(ParserTestUtils.parse(source).first), printer.print(roundTrip(source)));
+  }
+
+  static void assertTokenIs(Token token, String lexeme, Object literal, int startOffset, int endOffset) {
+    assertEquals(lexeme, token.lexeme());
+    assertEquals(literal, token.literal);
+    assertEquals(startOffset, token.startOffset);
+    assertEquals(endOffset, token.endOffset);
+  }
+}
@@ -0,0 +1,11 @@
+package com.lox;
+
+import org.junit.jupiter.api.*;
+
+// Run all the interpreter tests with the closure compiler
+public class ClosureCompilerTest extends InterpreterTest {
+  @Override
+  protected Interpreter createInterpreter() {
+    return new Interpreter(Interpreter.Engine.CLOSURE_COMPILER);
+  }
+}
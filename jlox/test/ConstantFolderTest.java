@@ -0,0 +1,50 @@
+package com.lox;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConstantFolderTest {
+  @Test
+  public void testFoldsOperators() throws Throwable {
+    ConstantFolderTestUtils.assertFoldsTo("60 * 60 * 24;", "86400.0");
+    ConstantFolderTestUtils.assertFoldsTo("-(1 + 2) / 4;", "-0.75");
+    ConstantFolderTestUtils.assertFoldsTo("!true; !nil; !0;", "false\ntrue\nfalse");
+    ConstantFolderTestUtils.assertFoldsTo("1 < 2; 2 <= 1; 1 == 1; nil != nil; true == 1;", "true\nfalse\ntrue\nfalse\nfalse");
+    ConstantFolderTestUtils.assertFoldsTo("true or x; nil or x; 0 and x; false and x;", "true\nx\nx\nfalse");
+    ConstantFolderTestUtils.assertFoldsTo("x = (1 + 1); f((2), x + 1 * 3);", "(= x 2.0)\n(f 2 (+ x 3.0))");
+  }
+
+  @Test
+  public void testKeepsFailingOperators() throws Throwable {
+    ConstantFolderTestUtils.assertFoldsTo("\"a\" - 1; -nil; (1 < \"b\");", "(- \"a\" 1)\n(- nil)\n(< 1 \"b\")");
+    // Strings are compared by reference, two literals are different strings
+    ConstantFolderTestUtils.assertFoldsTo("\"a\" == \"a\";", "false");
+  }
+
+  @Test
+  public void testPrunesBranches() throws Throwable {
+    ConstantFolderTestUtils.assertFoldsTo("if (1 < 2) print 1; else print 2;", "(print 1)");
+    ConstantFolderTestUtils.assertFoldsTo("if (nil) print 1; else print 2;", "(print 2)");
+    ConstantFolderTestUtils.assertFoldsTo("if (!true) print 1;", "(block)");
+    ConstantFolderTestUtils.assertFoldsTo("while (false) print 1; while (true) print 1;",
+        "(block)\n(while true do (print 1))");
+    ConstantFolderTestUtils.assertFoldsTo("fun f() { if (0) return 1 + 1; return x; }",
+        "(fun (f) (block (return 2.0) (return x)))");
+  }
+
+  @Test
+  public void testRuntimeErrors() throws Throwable {
+    InterpreterTestUtils.assertStdoutIs("print 2 * 3 == 6; print \"a\" == \"a\";", "true\nfalse\n");
+    InterpreterTestUtils.assertErrorMessageIs("print 1; print \"a\" - 1;", "Unsupported operator '-' on String and Number");
+    InterpreterTestUtils.assertErrorMessageIs("if (true) -\"a\";", "Unsupported operator '-' on String");
+    InterpreterTestUtils.assertLastStmtEquals("if (false) 1;", null);
+    InterpreterTestUtils.assertLastStmtEquals("if (true) 1 + 2;", 3.0);
+  }
+}
+
+class ConstantFolderTestUtils {
+  static void assertFoldsTo(String source, String prettyPrintedText) throws Throwable {
+    assertEquals(prettyPrintedText,
+        new PrettyPrinter().print(new ConstantFolder().fold(ParserTestUtils.parse(source).first)));
+  }
+}
@@ -0,0 +1,76 @@
+package com.lox;
+
+import java.util.List;
+
+import com.lox.ast.Expr;
+import com.lox.ast.Stmt;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InlinerTest {
+  @Test
+  public void testInliningDecisions() throws Throwable {
+    assertTrue(InlinerTestUtils.isInlined("fun sq(x) { return x * x; } sq(2);"));
+    assertTrue(InlinerTestUtils.isInlined("var k = 1; fun f(a, b) { return -(a + b) / k or nil; } f(1, 2);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { print x; return x; } f(1);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return f(x); } f(1);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return x = 1; } f(1);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return x; } f(1, 2);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x, x) { return x; } f(1, 2);"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return x+x+x+x+x+x+x+x+x; } f(1);"));
+    assertFalse(InlinerTestUtils.isInlined("class A { fun f(x) { return x; } } A().f(1);"));
+    // Matched with the declaration the callee resolves to
+    assertTrue(InlinerTestUtils.isInlined("fun f(x) { return x; } { fun f(x, y) { return y; } f(1, 2); }"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return x; } { var f; f(1); }"));
+    assertFalse(InlinerTestUtils.isInlined("fun f(x) { return x; } var f = 1; f(1);"));
+  }
+
+  @Test
+  public void testInlinedCalls() throws Throwable {
+    InterpreterTestUtils.assertLastStmtEquals("fun sq(x) { return x * x; } sq(1 + 2);", 9.0);
+    InterpreterTestUtils.assertLastStmtEquals("fun f(y) { fun g(x) { return x + y; } return g(1); } f(2);", 3.0);
+    InterpreterTestUtils.assertLastStmtEquals("fun g() { return f(1); } fun f(a) { return a; } g();", 1.0);
+    InterpreterTestUtils.assertErrorMessageIs("fun sq(x) { return x * x; } sq(\"a\");",
+        "Unsupported operator '*' on String and String");
+    InterpreterTestUtils.assertErrorMessageIs("fun f(x) { return 1; } f(undefined);", "Undefined variable 'undefined'");
+  }
+
+  @Test
+  public void testGuard() throws Throwable {
+    InterpreterTestUtils.assertStdoutIs("""
+        fun sq(x) { return x * x; }
+        fun cube(x) { return x * x * x; }
+        for (var i = 1; i < 4; i = i + 1) {
+          print sq(2);
+          sq = cube;
+        }
+        """, "4.0\n8.0\n8.0\n");
+    InterpreterTestUtils.assertErrorMessageIs("fun f(x) { return x; } f = 1; f(1);", "Callee is not of Callable type");
+    InterpreterTestUtils.assertStdoutIs("""
+        fun f(x) { return x; }
+        { fun f(x) { return -x; } print f(1); }
+        print f(1);
+        """, "-1.0\n1.0\n");
+  }
+}
+
+class InlinerTestUtils {
+  // Whether the last call of the last statement is inlined, the last
+  // statement of a block if it's a block
+  static boolean isInlined(String source) throws Throwable {
+    final List<Stmt> stmts = ParserTestUtils.parse(source).first;
+    final Resolver resolver = new Resolver();
+    final Inliner inliner = new Inliner(false);
+    for (Stmt stmt : stmts) {
+      resolver.resolveStmt(stmt);
+      inliner.inlineStmt(stmt);
+    }
+    Stmt last = stmts.get(stmts.size() - 1);
+    while (last instanceof Stmt.BlockStmt b) {
+      last = b.stmts.get(b.stmts.size() - 1);
+    }
+    final Expr expr = ((Stmt.ExprStmt) last).expr;
+    return ((Expr.Call) expr).inlined != null;
+  }
+}
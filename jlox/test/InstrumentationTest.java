@@ -0,0 +1,66 @@
+package com.lox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import com.lox.ast.Stmt;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentationTest {
+  @Test
+  public void testCounts() throws Throwable {
+    final String report = InstrumentationTestUtils.report("""
+        fun half(x) { return x * 0.5; }
+        fun count(n) { if (n == 0) return 0; return count(n - 1); }
+        for (var i = 0; i < 10; i = i + 1) { half(i); }
+        count(3);
+        """);
+    // `half` is inlined, but still counted as called
+    assertTrue(report.matches("(?s).*\\n +[\\d.]+ +[\\d.]+ +10  4 +half\\n.*"), report);
+    assertTrue(report.matches("(?s).*\\n +[\\d.]+ +[\\d.]+ +4  36 +count\\n.*"), report);
+    // Only the halves of odd numbers are not shared integers
+    assertTrue(report.contains("\nExpr.Binary      Number=5\n"), report);
+    assertTrue(report.contains("\nExpr.Call        Environment=14 Arguments=18\n"), report);
+    assertTrue(report.contains("\nStmt.ForStmt     Environment=1\n"), report);
+  }
+
+  @Test
+  public void testHotSpots() throws Throwable {
+    final String report = InstrumentationTestUtils.report("var a = 0; while (a < 100) a = a + 1;");
+    final String[] lines = report.split("\n");
+    assertEquals("== Hot spots by self time (top 11 of 11 nodes)", lines[0]);
+    assertTrue(lines[1].matches(" +self ms +total ms +count  location +node +allocations"), lines[1]);
+    assertTrue(report.matches("(?s).* 101  20 +Expr.Binary .*"), report);
+    assertTrue(report.matches("(?s).* 100  29 +Expr.Binary .*"), report);
+    assertTrue(report.matches("(?s).* 100  33 +Expr.Binary .*"), report);
+  }
+
+  @Test
+  public void testRuntimeErrors() throws Throwable {
+    final Instrumentation instrumentation = new Instrumentation();
+    final Interpreter interpreter = new Interpreter(Interpreter.Engine.TREE_WALKER, null, instrumentation);
+    final Environment env = Environment.createGlobals();
+    final List<Stmt> stmts = ParserTestUtils.parse("fun f() { return -nil; } f(); f;").first;
+    interpreter.evaluateStmt(stmts.get(0), env);
+    assertThrows(InterpreterException.class, () -> interpreter.evaluateStmt(stmts.get(1), env));
+    interpreter.evaluateStmt(stmts.get(2), env);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    instrumentation.writeReport(new PrintStream(out), offset -> String.valueOf(offset));
+    assertTrue(out.toString().matches("(?s).*\\n +[\\d.]+ +[\\d.]+ +1  4 +f\\n.*"), out.toString());
+  }
+}
+
+class InstrumentationTestUtils {
+  // Locations are offsets
+  static String report(String source) throws Throwable {
+    final Instrumentation instrumentation = new Instrumentation();
+    final Interpreter interpreter = new Interpreter(Interpreter.Engine.TREE_WALKER, null, instrumentation);
+    interpreter.evaluate(ParserTestUtils.parse(source).first);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    instrumentation.writeReport(new PrintStream(out), offset -> String.valueOf(offset));
+    return out.toString();
+  }
+}
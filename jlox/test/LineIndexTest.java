@@ -0,0 +1,31 @@
+package com.lox;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineIndexTest {
+  @Test
+  public void testLinesAndColumns() {
+    final String source = "ab\n\ncd\nlast";
+    final LineIndex lines = new LineIndex(source);
+    for (int offset = 0; offset <= source.length(); ++offset) {
+      // Same as counting the newlines before the offset
+      final String before = source.substring(0, offset);
+      assertEquals(before.chars().filter(c -> c == '\n').count() + 1, lines.lineOf(offset), "offset " + offset);
+      assertEquals(offset - before.lastIndexOf('\n'), lines.columnOf(offset), "offset " + offset);
+    }
+
+    final LineIndex empty = new LineIndex("");
+    assertEquals(1, empty.lineOf(0));
+    assertEquals(1, empty.columnOf(0));
+  }
+
+  @Test
+  public void testManyLines() {
+    final LineIndex lines = new LineIndex("x\n".repeat(1000));
+    assertEquals(1, lines.lineOf(1));
+    assertEquals(500, lines.lineOf(2 * 499 + 1));
+    assertEquals(2, lines.columnOf(2 * 499 + 1));
+    assertEquals(1001, lines.lineOf(2000));
+  }
+}
@@ -307,6 +307,29 @@ public class ParserTest {
     ParserTestUtils.assertNoErrorAndResultEquals(ParserTestUtils.parse("super()().a;"), "(. ((super)) a)");
     ParserTestUtils.assertNoErrorAndResultEquals(ParserTestUtils.parse("super().b();"), "((. (super) b))");
   }
+
+  @Test
+  public void testParseFromScanner() throws Throwable {
+    String[] sources = {
+        "",
+        "var a = 1; { print a + 2; } fun f(x) { return x; }",
+        "var = 3; print 1",
+        "class A { 3 } if (a) print a; else { b = 1 + ; }",
+        "(1 + 2",
+    };
+    for (String source : sources) {
+      Pair<List<Stmt>, List<ParserException>> expected = ParserTestUtils.parse(source);
+      Pair<List<Stmt>, List<ParserException>> res = new Parser(new Scanner(source)).parse();
+
+      assertEquals(ParserTestUtils.prettyPrint(res.first), ParserTestUtils.prettyPrint(expected.first));
+      assertEquals(res.second.size(), expected.second.size());
+      for (int i = 0; i < res.second.size(); ++i) {
+        assertEquals(res.second.get(i).message, expected.second.get(i).message);
+        assertEquals(res.second.get(i).startOffset, expected.second.get(i).startOffset);
+        assertEquals(res.second.get(i).endOffset, expected.second.get(i).endOffset);
+      }
+    }
+  }
 }
 
 class ParserTestUtils {
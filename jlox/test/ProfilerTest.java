@@ -0,0 +1,83 @@
+package com.lox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lox.ast.Stmt;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTest {
+  private static final String SOURCE = """
+      var start = clock();
+
+      fun busy() {
+        var n = 0;
+        while (clock() - start < 0.2) { n = n + 1; }
+        return n;
+      }
+      fun outer() { return busy(); }
+      outer();
+      """;
+
+  @Test
+  public void testCollapsedStacks() throws Throwable {
+    for (Interpreter.Engine engine : Interpreter.Engine.values()) {
+      final String collapsed = ProfilerTestUtils.profile(SOURCE, engine);
+      for (String line : collapsed.strip().split("\n")) {
+        assertTrue(line.matches("<script>(;\\w+:\\d+)* \\d+"), line);
+      }
+      assertTrue(collapsed.contains("<script>;outer:8;busy:3 "), engine + ":\n" + collapsed);
+    }
+  }
+
+  @Test
+  public void testShortcutCallsEnterFrames() throws Throwable {
+    final List<String> entered = new ArrayList<>();
+    final Profiler profiler = new Profiler("", Profiler.DEFAULT_HZ) {
+      @Override
+      public void enter(Stmt.FuncStmt func) {
+        entered.add(func.name.lexeme());
+        super.enter(func);
+      }
+    };
+    final Interpreter interpreter = new Interpreter(Interpreter.Engine.TREE_WALKER, profiler);
+    interpreter.evaluate(ParserTestUtils.parse("fun sq(x) { return x * x; } sq(2); sq(3);").first);
+    assertEquals(List.of("sq", "sq"), entered);
+  }
+
+  @Test
+  public void testRuntimeErrorsResetTheStack() throws Throwable {
+    final Profiler profiler = new Profiler("", Profiler.DEFAULT_HZ);
+    final Interpreter interpreter = new Interpreter(Interpreter.Engine.TREE_WALKER, profiler);
+    final Environment env = Environment.createGlobals();
+    final List<Stmt> stmts = ParserTestUtils.parse("fun f() { return -nil; } f(); clock();").first;
+    interpreter.evaluateStmt(stmts.get(0), env);
+    assertThrows(InterpreterException.class, () -> interpreter.evaluateStmt(stmts.get(1), env));
+    interpreter.evaluateStmt(stmts.get(2), env);
+
+    profiler.enter((Stmt.FuncStmt) stmts.get(0));
+    profiler.start();
+    Thread.sleep(50);
+    profiler.stop();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    profiler.writeCollapsed(new PrintStream(out));
+    assertTrue(out.toString().matches("<script>;f:1 \\d+\n"), out.toString());
+  }
+}
+
+class ProfilerTestUtils {
+  static String profile(String source, Interpreter.Engine engine) throws Throwable {
+    final Profiler profiler = new Profiler(source, Profiler.DEFAULT_HZ);
+    final Interpreter interpreter = new Interpreter(engine, profiler);
+    profiler.start();
+    interpreter.evaluate(ParserTestUtils.parse(source).first);
+    profiler.stop();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    profiler.writeCollapsed(new PrintStream(out));
+    return out.toString();
+  }
+}
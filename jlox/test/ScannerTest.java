@@ -30,35 +30,35 @@ public class ScannerTest {
     assertEquals(tokens.size(), 9); // 8 identifiers + 1 EOF
 
     assertEquals(tokens.get(0).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(0).lexeme, "andy");
+    assertEquals(tokens.get(0).lexeme(), "andy");
     assertEquals(tokens.get(0).literal, null);
 
     assertEquals(tokens.get(1).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(1).lexeme, "formless");
+    assertEquals(tokens.get(1).lexeme(), "formless");
     assertEquals(tokens.get(1).literal, null);
 
     assertEquals(tokens.get(2).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(2).lexeme, "fo");
+    assertEquals(tokens.get(2).lexeme(), "fo");
     assertEquals(tokens.get(2).literal, null);
 
     assertEquals(tokens.get(3).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(3).lexeme, "_");
+    assertEquals(tokens.get(3).lexeme(), "_");
     assertEquals(tokens.get(3).literal, null);
 
     assertEquals(tokens.get(4).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(4).lexeme, "_123");
+    assertEquals(tokens.get(4).lexeme(), "_123");
     assertEquals(tokens.get(4).literal, null);
 
     assertEquals(tokens.get(5).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(5).lexeme, "_abc");
+    assertEquals(tokens.get(5).lexeme(), "_abc");
     assertEquals(tokens.get(5).literal, null);
 
     assertEquals(tokens.get(6).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(6).lexeme, "ab123");
+    assertEquals(tokens.get(6).lexeme(), "ab123");
     assertEquals(tokens.get(6).literal, null);
 
     assertEquals(tokens.get(7).type, TokenType.IDENTIFIER);
-    assertEquals(tokens.get(7).lexeme, "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890_");
+    assertEquals(tokens.get(7).lexeme(), "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890_");
     assertEquals(tokens.get(7).literal, null);
 
     assertEquals(tokens.get(8).type, TokenType.EOF);
@@ -84,63 +84,63 @@ public class ScannerTest {
     assertEquals(tokens.size(), 16); // 15 keywords + 1 EOF
 
     assertEquals(tokens.get(0).type, TokenType.AND);
-    assertEquals(tokens.get(0).lexeme, "and");
+    assertEquals(tokens.get(0).lexeme(), "and");
     assertEquals(tokens.get(0).literal, null);
 
     assertEquals(tokens.get(1).type, TokenType.CLASS);
-    assertEquals(tokens.get(1).lexeme, "class");
+    assertEquals(tokens.get(1).lexeme(), "class");
     assertEquals(tokens.get(1).literal, null);
 
     assertEquals(tokens.get(2).type, TokenType.ELSE);
-    assertEquals(tokens.get(2).lexeme, "else");
+    assertEquals(tokens.get(2).lexeme(), "else");
     assertEquals(tokens.get(2).literal, null);
 
     assertEquals(tokens.get(3).type, TokenType.FALSE);
-    assertEquals(tokens.get(3).lexeme, "false");
+    assertEquals(tokens.get(3).lexeme(), "false");
     assertEquals(tokens.get(3).literal, false);
 
     assertEquals(tokens.get(4).type, TokenType.FOR);
-    assertEquals(tokens.get(4).lexeme, "for");
+    assertEquals(tokens.get(4).lexeme(), "for");
     assertEquals(tokens.get(4).literal, null);
 
     assertEquals(tokens.get(5).type, TokenType.FUN);
-    assertEquals(tokens.get(5).lexeme, "fun");
+    assertEquals(tokens.get(5).lexeme(), "fun");
     assertEquals(tokens.get(5).literal, null);
 
     assertEquals(tokens.get(6).type, TokenType.IF);
-    assertEquals(tokens.get(6).lexeme, "if");
+    assertEquals(tokens.get(6).lexeme(), "if");
     assertEquals(tokens.get(6).literal, null);
 
     assertEquals(tokens.get(7).type, TokenType.NIL);
-    assertEquals(tokens.get(7).lexeme, "nil");
+    assertEquals(tokens.get(7).lexeme(), "nil");
     assertEquals(tokens.get(7).literal, null);
 
     assertEquals(tokens.get(8).type, TokenType.OR);
-    assertEquals(tokens.get(8).lexeme, "or");
+    assertEquals(tokens.get(8).lexeme(), "or");
     assertEquals(tokens.get(8).literal, null);
 
     assertEquals(tokens.get(9).type, TokenType.RETURN);
-    assertEquals(tokens.get(9).lexeme, "return");
+    assertEquals(tokens.get(9).lexeme(), "return");
     assertEquals(tokens.get(9).literal, null);
 
     assertEquals(tokens.get(10).type, TokenType.TRUE);
-    assertEquals(tokens.get(10).lexeme, "true");
+    assertEquals(tokens.get(10).lexeme(), "true");
     assertEquals(tokens.get(10).literal, true);
 
     assertEquals(tokens.get(11).type, TokenType.VAR);
-    assertEquals(tokens.get(11).lexeme, "var");
+    assertEquals(tokens.get(11).lexeme(), "var");
     assertEquals(tokens.get(11).literal, null);
 
     assertEquals(tokens.get(12).type, TokenType.WHILE);
-    assertEquals(tokens.get(12).lexeme, "while");
+    assertEquals(tokens.get(12).lexeme(), "while");
     assertEquals(tokens.get(12).literal, null);
 
     assertEquals(tokens.get(13).type, TokenType.SUPER);
-    assertEquals(tokens.get(13).lexeme, "super");
+    assertEquals(tokens.get(13).lexeme(), "super");
     assertEquals(tokens.get(13).literal, null);
 
     assertEquals(tokens.get(14).type, TokenType.THIS);
-    assertEquals(tokens.get(14).lexeme, "this");
+    assertEquals(tokens.get(14).lexeme(), "this");
     assertEquals(tokens.get(14).literal, null);
 
     assertEquals(tokens.get(15).type, TokenType.EOF);
@@ -176,15 +176,15 @@ public class ScannerTest {
     assertEquals(tokens.size(), 4); // 3 numbers + 1 EOF
 
     assertEquals(tokens.get(0).type, TokenType.NUMBER);
-    assertEquals(tokens.get(0).lexeme, "123");
+    assertEquals(tokens.get(0).lexeme(), "123");
     assertEquals(tokens.get(0).literal, 123.0);
 
     assertEquals(tokens.get(1).type, TokenType.NUMBER);
-    assertEquals(tokens.get(1).lexeme, "123.456");
+    assertEquals(tokens.get(1).lexeme(), "123.456");
     assertEquals(tokens.get(1).literal, 123.456);
 
     assertEquals(tokens.get(2).type, TokenType.NUMBER);
-    assertEquals(tokens.get(2).lexeme, "123.");
+    assertEquals(tokens.get(2).lexeme(), "123.");
     assertEquals(tokens.get(2).literal, 123.);
 
     assertEquals(tokens.get(3).type, TokenType.EOF);
@@ -210,79 +210,79 @@ public class ScannerTest {
     assertEquals(tokens.size(), 20); // 19 punctuators + 1 EOF
 
     assertEquals(tokens.get(0).type, TokenType.LEFT_PAREN);
-    assertEquals(tokens.get(0).lexeme, "(");
+    assertEquals(tokens.get(0).lexeme(), "(");
     assertEquals(tokens.get(0).literal, null);
 
     assertEquals(tokens.get(1).type, TokenType.RIGHT_PAREN);
-    assertEquals(tokens.get(1).lexeme, ")");
+    assertEquals(tokens.get(1).lexeme(), ")");
     assertEquals(tokens.get(1).literal, null);
 
     assertEquals(tokens.get(2).type, TokenType.LEFT_BRACE);
-    assertEquals(tokens.get(2).lexeme, "{");
+    assertEquals(tokens.get(2).lexeme(), "{");
     assertEquals(tokens.get(2).literal, null);
 
     assertEquals(tokens.get(3).type, TokenType.RIGHT_BRACE);
-    assertEquals(tokens.get(3).lexeme, "}");
+    assertEquals(tokens.get(3).lexeme(), "}");
     assertEquals(tokens.get(3).literal, null);
 
     assertEquals(tokens.get(4).type, TokenType.SEMICOLON);
-    assertEquals(tokens.get(4).lexeme, ";");
+    assertEquals(tokens.get(4).lexeme(), ";");
     assertEquals(tokens.get(4).literal, null);
 
     assertEquals(tokens.get(5).type, TokenType.COMMA);
-    assertEquals(tokens.get(5).lexeme, ",");
+    assertEquals(tokens.get(5).lexeme(), ",");
     assertEquals(tokens.get(5).literal, null);
 
     assertEquals(tokens.get(6).type, TokenType.PLUS);
-    assertEquals(tokens.get(6).lexeme, "+");
+    assertEquals(tokens.get(6).lexeme(), "+");
     assertEquals(tokens.get(6).literal, null);
 
     assertEquals(tokens.get(7).type, TokenType.MINUS);
-    assertEquals(tokens.get(7).lexeme, "-");
+    assertEquals(tokens.get(7).lexeme(), "-");
     assertEquals(tokens.get(7).literal, null);
 
     assertEquals(tokens.get(8).type, TokenType.STAR);
-    assertEquals(tokens.get(8).lexeme, "*");
+    assertEquals(tokens.get(8).lexeme(), "*");
     assertEquals(tokens.get(8).literal, null);
 
     assertEquals(tokens.get(9).type, TokenType.BANG);
-    assertEquals(tokens.get(9).lexeme, "!");
+    assertEquals(tokens.get(9).lexeme(), "!");
     assertEquals(tokens.get(9).literal, null);
 
     assertEquals(tokens.get(10).type, TokenType.EQUAL_EQUAL);
-    assertEquals(tokens.get(10).lexeme, "==");
+    assertEquals(tokens.get(10).lexeme(), "==");
     assertEquals(tokens.get(10).literal, null);
 
     assertEquals(tokens.get(11).type, TokenType.LESS_EQUAL);
-    assertEquals(tokens.get(11).lexeme, "<=");
+    assertEquals(tokens.get(11).lexeme(), "<=");
     assertEquals(tokens.get(11).literal, null);
 
     assertEquals(tokens.get(12).type, TokenType.EQUAL);
-    assertEquals(tokens.get(12).lexeme, "=");
+    assertEquals(tokens.get(12).lexeme(), "=");
     assertEquals(tokens.get(12).literal, null);
 
     assertEquals(tokens.get(13).type, TokenType.GREATER_EQUAL);
-    assertEquals(tokens.get(13).lexeme, ">=");
+    assertEquals(tokens.get(13).lexeme(), ">=");
     assertEquals(tokens.get(13).literal, null);
 
     assertEquals(tokens.get(14).type, TokenType.BANG_EQUAL);
-    assertEquals(tokens.get(14).lexeme, "!=");
+    assertEquals(tokens.get(14).lexeme(), "!=");
     assertEquals(tokens.get(14).literal, null);
 
     assertEquals(tokens.get(15).type, TokenType.LESS);
-    assertEquals(tokens.get(15).lexeme, "<");
+    assertEquals(tokens.get(15).lexeme(), "<");
     assertEquals(tokens.get(15).literal, null);
 
     assertEquals(tokens.get(16).type, TokenType.GREATER);
-    assertEquals(tokens.get(16).lexeme, ">");
+    assertEquals(tokens.get(16).lexeme(), ">");
     assertEquals(tokens.get(16).literal, null);
 
     assertEquals(tokens.get(17).type, TokenType.SLASH);
-    assertEquals(tokens.get(17).lexeme, "/");
+    assertEquals(tokens.get(17).lexeme(), "/");
     assertEquals(tokens.get(17).literal, null);
 
     assertEquals(tokens.get(18).type, TokenType.DOT);
-    assertEquals(tokens.get(18).lexeme, ".");
+    assertEquals(tokens.get(18).lexeme(), ".");
     assertEquals(tokens.get(18).literal, null);
 
     assertEquals(tokens.get(19).type, TokenType.EOF);
@@ -312,14 +312,162 @@ public class ScannerTest {
     assertEquals(tokens.size(), 3); // 2 strings + 1 EOF
 
     assertEquals(tokens.get(0).type, TokenType.STRING);
-    assertEquals(tokens.get(0).lexeme, "\"\"");
+    assertEquals(tokens.get(0).lexeme(), "\"\"");
     assertEquals(tokens.get(0).literal, "");
 
     assertEquals(tokens.get(1).type, TokenType.STRING);
-    assertEquals(tokens.get(1).lexeme, "\"string\"");
+    assertEquals(tokens.get(1).lexeme(), "\"string\"");
     assertEquals(tokens.get(1).literal, "string");
 
     assertEquals(tokens.get(2).type, TokenType.EOF);
     assertEquals(tokens.get(2).literal, null);
   }
+
+  @Test
+  public void testNextToken() {
+    String source = """
+          var a = 1.5; // comment
+          print "s" @ a <= 2;
+          "
+        """;
+
+    List<Token> tokens = new Scanner(source).tokenize().first;
+    Scanner scanner = new Scanner(source);
+
+    // Test tokens
+    for (Token expected : tokens) {
+      Token token = scanner.nextToken();
+      assertEquals(token.type, expected.type);
+      assertEquals(token.lexeme(), expected.lexeme());
+      assertEquals(token.literal, expected.literal);
+      assertEquals(token.startOffset, expected.startOffset);
+      assertEquals(token.endOffset, expected.endOffset);
+    }
+    assertEquals(scanner.nextToken().type, TokenType.EOF);
+
+    // Test errors
+    assertEquals(scanner.errors().size(), 2);
+
+    assertEquals(scanner.errors().get(0).message, "Unknown character: @");
+    assertEquals(scanner.errors().get(1).message, "Unterminated string literal");
+  }
+
+  @Test
+  public void testInternedIdentifiers() {
+    StringBuilder source = new StringBuilder("a b a this b ");
+    // Enough names to grow the table of interned names
+    for (int i = 0; i < 1000; ++i) {
+      source.append("name").append(i).append(" name").append(i).append(' ');
+    }
+
+    Scanner scanner = new Scanner(source);
+    Pair<List<Token>, List<ScannerException>> res = scanner.tokenize();
+
+    List<Token> tokens = res.first;
+    List<ScannerException> errors = res.second;
+
+    // Test errors
+    assertEquals(errors.size(), 0);
+
+    // Test tokens
+    assertSame(tokens.get(0).lexeme(), tokens.get(2).lexeme());
+    assertSame(tokens.get(1).lexeme(), tokens.get(4).lexeme());
+    assertSame(tokens.get(0).lexeme(), "a");
+    assertEquals(tokens.get(3).type, TokenType.THIS);
+    assertSame(tokens.get(3).lexeme(), "this");
+    for (int i = 0; i < 1000; ++i) {
+      assertSame(tokens.get(5 + 2 * i).lexeme(), ("name" + i).intern());
+      assertSame(tokens.get(6 + 2 * i).lexeme(), tokens.get(5 + 2 * i).lexeme());
+    }
+  }
+
+  @Test
+  public void testSlicedLexemes() {
+    String source = """
+          a <= "s" + (1.5);
+        """;
+
+    Scanner scanner = new Scanner(java.nio.CharBuffer.wrap(source));
+    Pair<List<Token>, List<ScannerException>> res = scanner.tokenize();
+
+    List<Token> tokens = res.first;
+    List<ScannerException> errors = res.second;
+
+    // Test errors
+    assertEquals(errors.size(), 0);
+
+    // Test tokens
+    assertEquals(tokens.size(), 9); // 8 tokens + 1 EOF
+
+    String[] lexemes = { "a", "<=", "\"s\"", "+", "(", "1.5", ")", ";", "" };
+    for (int i = 0; i < tokens.size(); ++i) {
+      assertEquals(tokens.get(i).lexeme(), lexemes[i]);
+      assertEquals(tokens.get(i).lexeme(), source.substring(tokens.get(i).startOffset, tokens.get(i).endOffset));
+    }
+    assertEquals(tokens.get(2).literal, "s");
+    assertEquals(tokens.get(5).literal, 1.5);
+  }
+
+  @Test
+  public void testFastModeMatchesSimpleMode() {
+    String[] sources = {
+        "",
+        "var x = 1.5 + 002 * 123456789012345678 / 0.1 - 1. ; // comment",
+        "fun f(a, b) { return a >= b and !(a == b) or a != nil; }",
+        "class C < D { this.x = super.y; } print true; false; forx fu _if trues this1",
+        "1e5 1f 0x1p3 12ab 1.2.3 1_0 \"str\ning\" \"unterminated",
+        "caf\u00e9 \u00e9t\u00e9 \u0663 1\u0663 @ # \u00a0 \t\r\n \u2028 x\u0000y",
+    };
+    for (String source : sources) {
+      ScannerTestUtils.assertSameTokens(source);
+    }
+
+    // Random sources made of fragments of tokens
+    String[] fragments = {
+        "a", "z", "_", "and", "class", "else", "false", "for", "fun", "if", "nil", "or", "print", "return",
+        "true", "var", "while", "super", "this", "t", "f", "0", "7", ".", "1.25", "9007199254740993",
+        "(", ")", "{", "}", ",", "-", "+", ";", "*", "/", "//", "!", "=", "<", ">", "\"", " ", "\n", "\t",
+        "\u00e9", "\u0663", "\u00a0", "@", "e", "x",
+    };
+    java.util.Random random = new java.util.Random(24);
+    for (int i = 0; i < 2000; ++i) {
+      StringBuilder source = new StringBuilder();
+      int length = random.nextInt(40);
+      for (int j = 0; j < length; ++j) {
+        source.append(fragments[random.nextInt(fragments.length)]);
+      }
+      ScannerTestUtils.assertSameTokens(source.toString());
+    }
+  }
 }
+
+class ScannerTestUtils {
+  static void assertSameTokens(String source) {
+    Scanner simple = new Scanner(source, Scanner.Mode.SIMPLE);
+    Scanner fast = new Scanner(source, Scanner.Mode.FAST);
+    Pair<List<Token>, List<ScannerException>> expected = simple.tokenize();
+    Pair<List<Token>, List<ScannerException>> res = fast.tokenize();
+
+    // Test tokens
+    assertEquals(res.first.size(), expected.first.size(), source);
+    for (int i = 0; i < res.first.size(); ++i) {
+      Token token = res.first.get(i);
+      Token expectedToken = expected.first.get(i);
+      assertEquals(token.type, expectedToken.type, source);
+      assertEquals(token.lexeme(), expectedToken.lexeme(), source);
+      assertEquals(token.literal, expectedToken.literal, source);
+      assertEquals(token.startOffset, expectedToken.startOffset, source);
+      assertEquals(token.endOffset, expectedToken.endOffset, source);
+      assertSame(token.symbol(), expectedToken.symbol(), source);
+    }
+
+    // Test errors
+    assertEquals(res.second.size(), expected.second.size(), source);
+    for (int i = 0; i < res.second.size(); ++i) {
+      assertEquals(res.second.get(i).message, expected.second.get(i).message, source);
+      assertEquals(res.second.get(i).startOffset, expected.second.get(i).startOffset, source);
+      assertEquals(res.second.get(i).endOffset, expected.second.get(i).endOffset, source);
+    }
+  }
+}
+
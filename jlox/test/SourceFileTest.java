@@ -0,0 +1,97 @@
+package com.lox;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.lox.ast.Stmt;
+import com.lox.ast.Token;
+import com.lox.object.LoxNil;
+import com.lox.object.LoxObject;
+import com.lox.utils.Pair;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceFileTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testAscii() throws Throwable {
+    SourceFileTestUtils.assertLoads(this.dir, "".getBytes(StandardCharsets.UTF_8));
+    SourceFileTestUtils.assertLoads(this.dir, "var a = 1.5;\nprint a + \"b\"; // c\n".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testUtf8() throws Throwable {
+    SourceFileTestUtils.assertLoads(this.dir, "var café = \"😀\"; // été\n".getBytes(StandardCharsets.UTF_8));
+
+    // A char split between two chunks of the decoder
+    final String source = "// " + "a".repeat((64 << 10) - 4) + "é€😀\nprint 1;";
+    SourceFileTestUtils.assertLoads(this.dir, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testMalformed() throws Throwable {
+    // Malformed bytes are replaced, as when decoding a String
+    SourceFileTestUtils.assertLoads(this.dir, new byte[] { 'a', (byte) 0xff, ' ', 'b', (byte) 0xe2, (byte) 0x82 });
+    SourceFileTestUtils.assertLoads(this.dir, new byte[] { (byte) 0xc3, (byte) 0xa9, (byte) 0xe2, ';' });
+  }
+
+  @Test
+  public void testEmptyStrings() throws Throwable {
+    // Empty string literals are the same String, as when scanning a String
+    final Path script = this.dir.resolve("script.lox");
+    for (String source : List.of("var a = \"\"; var b = \"\"; \"\" == \"\" and a == b;",
+        "var a = \"\"; var b = \"\"; \"\" == \"\" and a == b; // été")) {
+      Files.writeString(script, source);
+      for (Interpreter.Engine engine : Interpreter.Engine.values()) {
+        assertEquals(true, SourceFileTestUtils.lastValue(new Interpreter(engine), SourceFile.load(script)));
+      }
+    }
+  }
+
+  @Test
+  public void testAstCacheHit() throws Throwable {
+    final String source = "var a = 1; print a + 2;";
+    final Path script = this.dir.resolve("script.lox");
+    Files.writeString(script, source);
+    final AstCache cache = new AstCache(this.dir.resolve("cache"));
+    cache.store(source, ParserTestUtils.parse(source).first);
+    assertNotNull(cache.load(SourceFile.load(script)));
+  }
+}
+
+class SourceFileTestUtils {
+  static Object lastValue(Interpreter interpreter, CharSequence source) throws Throwable {
+    final Environment env = Environment.createGlobals();
+    LoxObject res = LoxNil.NIL;
+    for (Stmt stmt : new Parser(new Scanner(source)).parse().first) {
+      res = interpreter.evaluateStmt(stmt, env);
+    }
+    return InterpreterTestUtils.rawValueOf(res);
+  }
+
+  // Check that `bytes` load & scan as their String
+  static void assertLoads(Path dir, byte[] bytes) throws Throwable {
+    final Path script = dir.resolve("script.lox");
+    Files.write(script, bytes);
+    final String expected = new String(bytes, StandardCharsets.UTF_8);
+    final CharSequence source = SourceFile.load(script);
+    assertEquals(expected, source.toString());
+    assertEquals(expected.length(), source.length());
+
+    final Pair<List<Token>, List<ScannerException>> expectedRes = new Scanner(expected).tokenize();
+    final Pair<List<Token>, List<ScannerException>> res = new Scanner(source).tokenize();
+    assertEquals(expectedRes.first.size(), res.first.size());
+    for (int i = 0; i < res.first.size(); ++i) {
+      assertEquals(expectedRes.first.get(i).type, res.first.get(i).type);
+      assertEquals(expectedRes.first.get(i).lexeme(), res.first.get(i).lexeme());
+      assertEquals(expectedRes.first.get(i).literal, res.first.get(i).literal);
+    }
+    assertEquals(expectedRes.second.size(), res.second.size());
+  }
+}
@@ -0,0 +1,56 @@
+package com.lox;
+
+import java.util.List;
+
+import com.lox.ast.Token;
+import com.lox.utils.IntMap;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTest {
+  @Test
+  public void testInterned() throws Throwable {
+    final Symbol a = Symbol.of("symbolTestA");
+    assertSame(a, Symbol.of(new String("symbolTestA")));
+    assertSame(a.name, "symbolTestA");
+    assertNotEquals(a.id, Symbol.of("symbolTestB").id);
+    assertSame(SpecialSymbols.CONSTRUCTOR, Symbol.of("constructor"));
+
+    // From the scanner & from the lexeme of a token
+    final List<Token> tokens = new Scanner("symbolTestA + symbolTestA;").tokenize().first;
+    assertSame(tokens.get(0).symbol(), a);
+    assertSame(tokens.get(2).symbol(), a);
+    assertSame(new Token(tokens.get(0).type, "symbolTestA", null, 0, 11).symbol(), a);
+  }
+
+  @Test
+  public void testIntMap() {
+    final IntMap<String> map = new IntMap<>();
+    assertNull(map.get(3));
+    assertNull(map.replace(3, "c"));
+    assertFalse(map.containsKey(3));
+
+    // Enough keys to grow the table, with colliding low bits
+    for (int i = 0; i < 1000; ++i) {
+      assertNull(map.put(i * 1024, "v" + i));
+    }
+    assertEquals(map.size(), 1000);
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(map.get(i * 1024), "v" + i);
+    }
+    assertNull(map.get(1));
+
+    assertEquals(map.put(0, "w"), "v0");
+    assertEquals(map.putIfAbsent(0, "x"), "w");
+    assertEquals(map.replace(1024, "y"), "v1");
+    assertEquals(map.get(0), "w");
+    assertEquals(map.get(1024), "y");
+    assertEquals(map.size(), 1000);
+
+    final IntMap<String> copy = new IntMap<>(map);
+    copy.put(1, "z");
+    assertEquals(copy.get(1), "z");
+    assertNull(map.get(1));
+  }
+}
@@ -0,0 +1,48 @@
+package com.lox;
+
+import java.util.List;
+
+import com.lox.ast.Stmt;
+import com.lox.object.LoxNumber;
+import com.lox.object.LoxObject;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run all the interpreter tests with the tiered engine, with functions
+// compiled from their second call
+public class TieredTest extends InterpreterTest {
+  @Override
+  protected Interpreter createInterpreter() {
+    return new Interpreter(Interpreter.Engine.TIERED, 2);
+  }
+
+  @Test
+  public void testDemotion() throws Throwable {
+    final List<Stmt> stmts = new Parser(new Scanner("""
+        fun f(x) { return x * 2; }
+        f(1); f(2); f(3);
+        f("a");
+        f(4);
+        """).tokenize().first).parse().first;
+    final Stmt.FuncStmt f = (Stmt.FuncStmt) stmts.get(0);
+    final Interpreter interpreter = this.createInterpreter();
+    final Environment env = Environment.createGlobals();
+
+    for (int i = 0; i < 4; ++i) {
+      interpreter.evaluateStmt(stmts.get(i), env);
+    }
+    assertTrue(interpreter.isCompiled(f));
+    assertFalse(interpreter.isDemoted(f));
+
+    final InterpreterException e = assertThrows(InterpreterException.class,
+        () -> interpreter.evaluateStmt(stmts.get(4), env));
+    assertEquals("Unsupported operator '*' on String and Number", e.message);
+    assertTrue(interpreter.isDemoted(f));
+    assertFalse(interpreter.isCompiled(f));
+
+    final LoxObject res = interpreter.evaluateStmt(stmts.get(5), env);
+    assertEquals(8.0, ((LoxNumber) res).value);
+    assertFalse(interpreter.isCompiled(f));
+  }
+}
@@ -0,0 +1,11 @@
+package com.lox;
+
+import org.junit.jupiter.api.*;
+
+// Run all the interpreter tests with the bytecode VM
+public class VmTest extends InterpreterTest {
+  @Override
+  protected Interpreter createInterpreter() {
+    return new Interpreter(Interpreter.Engine.BYTECODE_VM);
+  }
+}